@@ -0,0 +1,84 @@
+package com.example.demo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * So sánh hai file kết quả JMH (-rf json): điểm chính và gc.alloc.rate.norm của từng benchmark/tham số,
+ * kèm phần trăm thay đổi. Với chế độ AverageTime số dương là chậm hơn, với Throughput số âm là chậm hơn.
+ * Cách chạy: xem profile benchmark trong pom.xml.
+ */
+public final class BenchmarkComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BenchmarkComparison <baseline.json> <candidate.json>");
+            System.exit(2);
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = index(objectMapper.readTree(new File(args[0])));
+        Map<String, JsonNode> candidate = index(objectMapper.readTree(new File(args[1])));
+
+        System.out.printf("%-80s %14s %14s %9s %12s %12s %9s%n",
+                "benchmark", "baseline", "candidate", "change", "base B/op", "cand B/op", "change");
+        for (Map.Entry<String, JsonNode> entry : candidate.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            JsonNode after = entry.getValue();
+            double score = after.path("primaryMetric").path("score").asDouble();
+            double allocation = after.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(Double.NaN);
+            if (before == null) {
+                System.out.printf("%-80s %14s %14.3f %9s %12s %12.1f %9s%n",
+                        entry.getKey(), "-", score, "new", "-", allocation, "");
+                continue;
+            }
+            double baseScore = before.path("primaryMetric").path("score").asDouble();
+            double baseAllocation = before.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(Double.NaN);
+            System.out.printf("%-80s %14.3f %14.3f %9s %12.1f %12.1f %9s%n",
+                    entry.getKey() + " (" + after.path("primaryMetric").path("scoreUnit").asText() + ")",
+                    baseScore, score, change(baseScore, score),
+                    baseAllocation, allocation, change(baseAllocation, allocation));
+        }
+    }
+
+    // Khóa: tên benchmark kèm tham số, ví dụ StudentSerializationBenchmark.views[size=50]
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            String name = result.path("benchmark").asText();
+            StringBuilder key = new StringBuilder(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1));
+            JsonNode params = result.path("params");
+            if (!params.isMissingNode()) {
+                key.append('[');
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    key.append(field.getKey()).append('=').append(field.getValue().asText());
+                    if (fields.hasNext()) {
+                        key.append(',');
+                    }
+                }
+                key.append(']');
+            }
+            indexed.put(key.toString(), result);
+        }
+        return indexed;
+    }
+
+    private static String change(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return "";
+        }
+        return String.format("%+.1f%%", (after - before) / before * 100);
+    }
+}
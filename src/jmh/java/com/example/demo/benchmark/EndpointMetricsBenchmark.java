@@ -0,0 +1,61 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.controller.MetricsController;
+import com.example.demo.metrics.EndpointMeters;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí ghi metric cho mỗi request: Timer.builder(...).register() mỗi lần (cách cũ trong MetricsController)
+ * so với EndpointMeters đã resolve sẵn, xem thêm gc.alloc.rate.norm (byte/op):
+ * mvn -Pbenchmark verify -Djmh.args="EndpointMetrics"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndpointMetricsBenchmark {
+
+    private PrometheusMeterRegistry registry;
+    private EndpointMeters meters;
+
+    @Setup
+    public void setUp() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        MetricsController metricsController = new MetricsController();
+        ReflectionTestUtils.setField(metricsController, "meterRegistry", registry);
+        meters = metricsController.endpointMeters("student", "getStudentById");
+    }
+
+    @Benchmark
+    public void legacyBuilderPerCall() {
+        Timer.Sample sample = Timer.start(registry);
+        Timer timer = Timer.builder("student_request_duration_legacy")
+                .description("Request duration for student endpoints")
+                .tag("application", "student-management")
+                .tag("endpoint", "getStudentById")
+                .register(registry);
+        sample.stop(timer);
+    }
+
+    @Benchmark
+    public void preResolvedMeters() {
+        meters.record(200, 1_234_567);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.JwtAuthenticationFilter;
+import com.example.demo.security.JwtUtil;
+import com.example.demo.security.RevocationBloomFilter;
+import com.example.demo.security.TokenRevocationService;
+import com.example.demo.service.CustomUserDetailsService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtAuthenticationFilter trọn vẹn cho một request có Bearer token: verify (cache), kiểm tra thu hồi,
+ * lấy principal và dựng Authentication. User store được thay bằng bản trả về principal cố định
+ * (tương đương cache principals luôn trúng), nên số đo không gồm truy vấn DB. Chạy:
+ * mvn -Pbenchmark verify -Djmh.args="JwtAuthenticationFilter"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    // database: principal lấy từ user store; token: quyền lấy từ claim roles
+    @Param({"database", "token"})
+    public String authoritiesSource;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private Authentication[] captured;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        UserDetails user = User.withUsername("admin").password("").authorities("ROLE_ADMIN", "ROLE_USER").build();
+        JwtUtil jwtUtil = JwtVerificationBenchmark.newJwtUtil();
+        String token = jwtUtil.generateJwtToken(user, "00000000-0000-0000-0000-000000000000");
+
+        CustomUserDetailsService userStore = new CustomUserDetailsService() {
+            @Override
+            public UserDetails loadPrincipal(String username) {
+                return user;
+            }
+        };
+        TokenRevocationService revocations = new TokenRevocationService();
+        ReflectionTestUtils.setField(revocations, "filter", new RevocationBloomFilter(100_000, 0.001));
+        ReflectionTestUtils.setField(revocations, "confirmed", Caffeine.newBuilder().maximumSize(10).build());
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userStore);
+        ReflectionTestUtils.setField(filter, "tokenRevocationService", revocations);
+        ReflectionTestUtils.setField(filter, "authoritiesSource", authoritiesSource);
+
+        request = new MockHttpServletRequest("GET", "/api/students/1");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+        captured = new Authentication[1];
+        chain = (req, res) -> captured[0] = SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Authentication authenticate() throws ServletException, IOException {
+        filter.doFilter(request, response, chain);
+        SecurityContextHolder.clearContext();
+        return captured[0];
+    }
+}
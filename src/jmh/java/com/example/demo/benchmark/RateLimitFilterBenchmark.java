@@ -0,0 +1,82 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.RateLimitProperties;
+import com.example.demo.filter.RateLimitBucketStore;
+import com.example.demo.filter.SimpleRateLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SimpleRateLimitFilter (backend memory) cho request chưa đăng nhập, 4 thread cùng lúc, IP rải đều trên
+ * số địa chỉ khác nhau: 1 (mọi thread tranh một bucket), 1000 và 100.000 (nhiều bucket, cache Caffeine lớn).
+ * Giới hạn đặt rất cao để mọi request đều qua (đo đường tra bucket, không đo response 409). Chạy:
+ * mvn -Pbenchmark verify -Djmh.args="RateLimitFilter"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RateLimitFilterBenchmark {
+
+    @Param({"1", "1000", "100000"})
+    public int clients;
+
+    private SimpleRateLimitFilter filter;
+    private String[] addresses;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setAnonymous(new RateLimitProperties.Limit(1_000_000_000, Duration.ofMinutes(1)));
+        filter = new SimpleRateLimitFilter();
+        ReflectionTestUtils.setField(filter, "properties", properties);
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "backend",
+                new RateLimitBucketStore(properties.getMaxKeys(), properties.effectiveExpireAfterAccess()));
+        filter.init();
+
+        addresses = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            addresses[i] = "10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff);
+        }
+    }
+
+    // Request/response của từng thread, dùng lại giữa các lần gọi
+    @State(Scope.Thread)
+    public static class Exchange {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/students");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public int anonymousRequest(Exchange exchange) throws ServletException, IOException {
+        exchange.request.setRemoteAddr(addresses[ThreadLocalRandom.current().nextInt(addresses.length)]);
+        filter.doFilter(exchange.request, exchange.response, chain);
+        return exchange.response.getStatus();
+    }
+}
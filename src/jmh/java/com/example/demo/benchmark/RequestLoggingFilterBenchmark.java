@@ -0,0 +1,94 @@
+package com.example.demo.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import com.example.demo.filter.RequestLoggingFilter;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phần RequestLoggingFilter thêm vào mỗi request: request id + MDC, đo phase, timer Prometheus,
+ * header Server-Timing và dựng sự kiện log có cấu trúc. Appender chỉ đọc message của sự kiện (không I/O)
+ * để tách chi phí của filter khỏi chi phí ghi log. sampleRate 0.0 = chỉ log lỗi/request chậm. Chạy:
+ * mvn -Pbenchmark verify -Djmh.args="RequestLoggingFilter"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestLoggingFilterBenchmark {
+
+    @Param({"1.0", "0.0"})
+    public double sampleRate;
+
+    private RequestLoggingFilter filter;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setUp() {
+        // Không có logback-spring.xml ngoài Spring: thay appender console mặc định bằng appender không I/O
+        Logger logger = (Logger) LoggerFactory.getLogger("HTTP_REQUEST");
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.detachAndStopAllAppenders();
+        AppenderBase<ILoggingEvent> appender = new AppenderBase<>() {
+            private final Blackhole blackhole = new Blackhole(
+                    "Today's password is swordfish. I understand instantiating Blackholes directly is dangerous.");
+
+            @Override
+            protected void append(ILoggingEvent event) {
+                blackhole.consume(event.getFormattedMessage());
+            }
+        };
+        appender.setContext(logger.getLoggerContext());
+        appender.start();
+        logger.addAppender(appender);
+
+        filter = new RequestLoggingFilter();
+        ReflectionTestUtils.setField(filter, "successSampleRate", sampleRate);
+        ReflectionTestUtils.setField(filter, "slowThresholdMs", 60_000L);
+        ReflectionTestUtils.setField(filter, "serverTimingHeader", true);
+        ReflectionTestUtils.setField(filter, "meterRegistry", new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        filter.init();
+    }
+
+    @Benchmark
+    public int filteredRequest() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/students/1"), response, chain);
+        return response.getStatus();
+    }
+
+    // Mốc so sánh: chỉ dựng request/response giả, không qua filter
+    @Benchmark
+    public int baseline() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        chain.doFilter(new MockHttpServletRequest("GET", "/api/students/1"), response);
+        return response.getStatus();
+    }
+}
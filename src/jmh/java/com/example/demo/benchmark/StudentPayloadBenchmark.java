@@ -0,0 +1,98 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.Student;
+import com.example.demo.service.StudentPayloadCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CPU cho mỗi request GET /api/students (danh sách tương thích 1000 học viên) theo ba cách:
+ * Jackson mỗi request, Jackson + gzip mỗi request (như nén của Tomcat), và ghi byte đã cache.
+ * Số byte trên dây (JSON/gzip) được in ra khi setup. Chạy:
+ * mvn -Pbenchmark verify -Djmh.args="StudentPayload"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentPayloadBenchmark {
+
+    private ObjectMapper objectMapper;
+    private List<Student> students;
+    private byte[] cachedJson;
+    private byte[] cachedGzip;
+    // Thay cho buffer đầu ra của Tomcat: mỗi cách đều phải chép byte vào đây
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(256 * 1024);
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        students = new ArrayList<>();
+        String[] schools = {"Đại học Công nghệ (UET)", "Đại học Bách khoa Hà Nội (HUST)", "Học viện Công nghệ Bưu chính Viễn thông (PTIT)"};
+        for (int i = 0; i < 1000; i++) {
+            Student student = new Student();
+            student.setId((long) i + 1);
+            student.setFullName("Nguyễn Thị Hồng Nhung " + i);
+            student.setBirthDate(LocalDate.of(2000, 1, 1).plusDays(i % 2000));
+            student.setSchoolCategory(schools[i % schools.length]);
+            students.add(student);
+        }
+        cachedJson = objectMapper.writeValueAsBytes(students);
+        cachedGzip = StudentPayloadCache.gzip(cachedJson);
+        System.out.printf("%nbytes on the wire: json=%d, gzip (Tomcat default level)=%d, gzip (cached, best)=%d%n",
+                cachedJson.length, tomcatGzip(cachedJson).length, cachedGzip.length);
+    }
+
+    @Benchmark
+    public int jacksonPerRequest() throws IOException {
+        sink.reset();
+        objectMapper.writeValue(sink, students);
+        return sink.size();
+    }
+
+    @Benchmark
+    public int jacksonAndGzipPerRequest() throws IOException {
+        sink.reset();
+        try (GZIPOutputStream out = new GZIPOutputStream(sink)) {
+            objectMapper.writeValue(out, students);
+        }
+        return sink.size();
+    }
+
+    @Benchmark
+    public int cachedGzipBytes() {
+        sink.reset();
+        sink.writeBytes(cachedGzip);
+        return sink.size();
+    }
+
+    private static byte[] tomcatGzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(data);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dto.StudentView;
+import com.example.demo.model.Student;
+import com.example.demo.repository.StudentRepository;
+import com.example.demo.service.StudentService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Một lần đọc danh sách 1000 học viên (không qua cache): entity trong transaction đọc-ghi mặc định
+ * (cách cũ, có snapshot dirty-checking và flush khi commit) so với projection StudentView trong
+ * transaction read-only (FlushMode.MANUAL). Chạy trên H2 của profile test:
+ * mvn -Pbenchmark verify -Djmh.args="StudentRead"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentReadBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private StudentRepository studentRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--student.autocomplete.enabled=false", "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN", "--logging.level.com.example.demo=WARN");
+        studentRepository = context.getBean(StudentRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        context.getBean(StudentService.class).bulkUpsert(IntStream.range(0, ROWS).mapToObj(i -> {
+            Student student = new Student();
+            student.setFullName("Nguyễn Thị Hồng Nhung " + i);
+            student.setBirthDate(LocalDate.of(2000, 1, 1).plusDays(i));
+            student.setSchoolCategory("Đại học Công nghệ (UET)");
+            return student;
+        }).iterator());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Student> managedEntitiesReadWrite() {
+        return readWrite.execute(status -> entityManager
+                .createQuery("SELECT s FROM Student s ORDER BY s.id", Student.class)
+                .setMaxResults(ROWS)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<StudentView> projectionReadOnly() {
+        return readOnly.execute(status -> studentRepository.findAllByOrderByIdAsc(Limit.of(ROWS)));
+    }
+}
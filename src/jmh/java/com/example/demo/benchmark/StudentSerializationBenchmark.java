@@ -0,0 +1,82 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.StudentView;
+import com.example.demo.model.Student;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialize danh sách học viên theo kích thước trang (1 = GET theo id, 50 = trang mặc định,
+ * 500 = trang tối đa, 1000 = danh sách tương thích): entity Student và projection StudentView đang trả về.
+ * Chạy: mvn -Pbenchmark verify -Djmh.args="StudentSerialization"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentSerializationBenchmark {
+
+    @Param({"1", "50", "500", "1000"})
+    public int size;
+
+    private ObjectWriter writer;
+    private List<Student> students;
+    private List<StudentView> views;
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(256 * 1024);
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        writer = objectMapper.writer();
+        String[] schools = {"Đại học Công nghệ (UET)", "Đại học Bách khoa Hà Nội (HUST)", "Học viện Công nghệ Bưu chính Viễn thông (PTIT)"};
+        students = new ArrayList<>(size);
+        views = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Student student = new Student();
+            student.setId((long) i + 1);
+            student.setFullName("Nguyễn Thị Hồng Nhung " + i);
+            student.setBirthDate(LocalDate.of(2000, 1, 1).plusDays(i % 2000));
+            student.setSchoolCategory(schools[i % schools.length]);
+            students.add(student);
+            views.add(new StudentView(student.getId(), student.getFullName(), student.getBirthDate(),
+                    student.getSchoolCategory(), 0));
+        }
+    }
+
+    @Benchmark
+    public int entities() throws IOException {
+        sink.reset();
+        writer.writeValue(sink, students);
+        return sink.size();
+    }
+
+    @Benchmark
+    public int views() throws IOException {
+        sink.reset();
+        writer.writeValue(sink, views);
+        return sink.size();
+    }
+}
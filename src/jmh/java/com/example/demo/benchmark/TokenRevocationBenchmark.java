@@ -0,0 +1,78 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.RevocationBloomFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí kiểm tra thu hồi trên mỗi request (jti + sid của access token) với Bloom filter chứa 100.000 id
+ * đã thu hồi: token hợp lệ (đường nhanh, không chạm DB) và token đã thu hồi (filter báo có, đi tiếp xuống DB).
+ * Tỉ lệ dương tính giả thực tế được in ra khi setup. Chạy:
+ * mvn -Pbenchmark verify -Djmh.args="TokenRevocation"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenRevocationBenchmark {
+
+    private static final int REVOKED = 100_000;
+    private static final int SAMPLES = 1024;
+
+    private RevocationBloomFilter filter;
+    private String[] validIds;
+    private String[] revokedIds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        filter = new RevocationBloomFilter(REVOKED, 0.001);
+        revokedIds = new String[SAMPLES];
+        for (int i = 0; i < REVOKED; i++) {
+            String id = UUID.randomUUID().toString();
+            filter.add(id);
+            if (i < SAMPLES) {
+                revokedIds[i] = id;
+            }
+        }
+        validIds = new String[SAMPLES * 2];
+        for (int i = 0; i < validIds.length; i++) {
+            validIds[i] = UUID.randomUUID().toString();
+        }
+        int falsePositives = 0;
+        int probes = 1_000_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        System.out.printf("%nbloom filter: %d bits (%d KB), %d hashes, false positive rate %.5f%n",
+                filter.getBitCount(), filter.getBitCount() / 8 / 1024, filter.getHashCount(),
+                falsePositives / (double) probes);
+    }
+
+    // jti và sid của một access token chưa bị thu hồi
+    @Benchmark
+    public boolean validToken() {
+        int i = next++ & (SAMPLES - 1);
+        return filter.mightContain(validIds[2 * i]) || filter.mightContain(validIds[2 * i + 1]);
+    }
+
+    @Benchmark
+    public boolean revokedToken() {
+        return filter.mightContain(revokedIds[next++ & (SAMPLES - 1)]);
+    }
+}
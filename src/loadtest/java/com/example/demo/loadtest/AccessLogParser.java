@@ -0,0 +1,163 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Đọc access log của Tomcat theo đúng server.tomcat.accesslog.pattern trong application.properties:
+ * mỗi mã %x của pattern được dịch thành một nhóm regex, ký tự còn lại giữ nguyên.
+ * Chỉ lấy phương thức, đường dẫn (kèm query) và status; dòng không khớp pattern bị bỏ qua.
+ */
+final class AccessLogParser {
+
+    static final String PATTERN_PROPERTY = "server.tomcat.accesslog.pattern";
+
+    // Tên gọi tắt của Tomcat
+    private static final String COMMON = "%h %l %u %t \"%r\" %s %b";
+    private static final String COMBINED = COMMON + " \"%{Referer}i\" \"%{User-Agent}i\"";
+
+    record RecordedRequest(String method, String target, int status) {
+    }
+
+    private enum Field {
+        REQUEST_LINE,
+        METHOD,
+        PATH,
+        QUERY,
+        STATUS,
+        OTHER
+    }
+
+    private final Pattern regex;
+    private final List<Field> groups;
+
+    AccessLogParser(String tomcatPattern) {
+        String pattern = switch (tomcatPattern) {
+            case "common" -> COMMON;
+            case "combined" -> COMBINED;
+            default -> tomcatPattern;
+        };
+        List<Field> fields = new ArrayList<>();
+        StringBuilder regex = new StringBuilder("^");
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i++);
+            if (c != '%' || i >= pattern.length()) {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                continue;
+            }
+            String argument = null;
+            if (pattern.charAt(i) == '{') {
+                int end = pattern.indexOf('}', i);
+                argument = pattern.substring(i + 1, end);
+                i = end + 1;
+            }
+            char code = pattern.charAt(i++);
+            regex.append(group(code, argument, fields));
+        }
+        this.regex = Pattern.compile(regex.append('$').toString());
+        this.groups = fields;
+    }
+
+    // Pattern đang cấu hình cho ứng dụng (application.properties trên classpath)
+    static AccessLogParser fromApplicationProperties() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = AccessLogParser.class.getResourceAsStream("/application.properties")) {
+            if (in == null) {
+                throw new IOException("application.properties not found on the classpath");
+            }
+            properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        return new AccessLogParser(properties.getProperty(PATTERN_PROPERTY, COMMON));
+    }
+
+    private static String group(char code, String argument, List<Field> fields) {
+        switch (code) {
+            case '%':
+                return "%";
+            case 't':
+                // Mặc định Tomcat ghi [dd/MMM/yyyy:HH:mm:ss Z], định dạng riêng thì không biết trước độ dài
+                fields.add(Field.OTHER);
+                return argument == null ? "(\\[[^\\]]*\\])" : "(.*?)";
+            case 'r':
+                fields.add(Field.REQUEST_LINE);
+                return "(.*?)";
+            case 'm':
+                fields.add(Field.METHOD);
+                return "([A-Z]+)";
+            case 'U':
+                fields.add(Field.PATH);
+                return "(\\S+)";
+            case 'q':
+                fields.add(Field.QUERY);
+                return "(\\S*)";
+            case 's':
+                fields.add(Field.STATUS);
+                return "(\\d{3}|-)";
+            case 'a', 'A', 'h', 'H', 'l', 'u', 'v', 'p', 'b', 'B', 'D', 'T', 'F', 'S', 'I':
+                fields.add(Field.OTHER);
+                return "(\\S+)";
+            default:
+                // %{xxx}i, %{xxx}o, %{xxx}c... và mã chưa biết
+                fields.add(Field.OTHER);
+                return "(.*?)";
+        }
+    }
+
+    RecordedRequest parse(String line) {
+        Matcher matcher = regex.matcher(line);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String method = null;
+        String path = null;
+        String query = "";
+        int status = 0;
+        for (int g = 0; g < groups.size(); g++) {
+            String value = matcher.group(g + 1);
+            switch (groups.get(g)) {
+                case REQUEST_LINE -> {
+                    // "GET /api/students?limit=10 HTTP/1.1"
+                    String[] parts = value.split(" ");
+                    if (parts.length < 2) {
+                        return null;
+                    }
+                    method = parts[0];
+                    path = parts[1];
+                }
+                case METHOD -> method = value;
+                case PATH -> path = value;
+                case QUERY -> query = value;
+                case STATUS -> status = "-".equals(value) ? 0 : Integer.parseInt(value);
+                case OTHER -> {
+                }
+            }
+        }
+        if (method == null || path == null) {
+            return null;
+        }
+        return new RecordedRequest(method, path + query, status);
+    }
+
+    List<RecordedRequest> parse(List<Path> files) throws IOException {
+        List<RecordedRequest> requests = new ArrayList<>();
+        for (Path file : files) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                RecordedRequest request = parse(line.strip());
+                if (request != null) {
+                    requests.add(request);
+                }
+            }
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Độ trễ (HdrHistogram, micro giây, 3 chữ số có nghĩa) và số response theo nhóm status của một endpoint
+final class EndpointStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final LongAdder success = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    // 409 của SimpleRateLimitFilter, 503 của bulkhead/hàng đợi băm mật khẩu
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    // Timeout, lỗi kết nối: không có response
+    private final LongAdder failures = new LongAdder();
+
+    void record(int status, long latencyNanos) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+        if (status == 409) {
+            rateLimited.increment();
+        } else if (status == 503) {
+            shed.increment();
+        } else if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        } else {
+            success.increment();
+        }
+    }
+
+    void failed(long latencyNanos) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+        failures.increment();
+    }
+
+    void add(EndpointStats other) {
+        latencies.add(other.latencies);
+        success.add(other.success.sum());
+        clientErrors.add(other.clientErrors.sum());
+        rateLimited.add(other.rateLimited.sum());
+        shed.add(other.shed.sum());
+        serverErrors.add(other.serverErrors.sum());
+        failures.add(other.failures.sum());
+    }
+
+    long count() {
+        return latencies.getTotalCount();
+    }
+
+    double percentileMillis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    double maxMillis() {
+        return latencies.getMaxValue() / 1000.0;
+    }
+
+    long success() {
+        return success.sum();
+    }
+
+    long clientErrors() {
+        return clientErrors.sum();
+    }
+
+    long rateLimited() {
+        return rateLimited.sum();
+    }
+
+    long shed() {
+        return shed.sum();
+    }
+
+    long serverErrors() {
+        return serverErrors.sum();
+    }
+
+    long failures() {
+        return failures.sum();
+    }
+
+    // Request ứng dụng không phục vụ được: 503, 5xx và lỗi kết nối (409 là giới hạn theo chính sách, tính riêng)
+    long errors() {
+        return shed() + serverErrors() + failures();
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Đo thời gian từ lúc khởi chạy JVM tới request đầu tiên thành công (GET /actuator/health trả 200, có kiểm
+ * tra DB) của jar đã đóng gói, lần lượt theo từng cách khởi động:
+ * before  - cấu hình cũ: ddl-auto=update, show-sql/format_sql, không Flyway
+ * flyway  - profile prod: Flyway (đã migrate, chỉ kiểm tra) + ddl-auto=validate
+ * aot     - như flyway, thêm -Dspring.aot.enabled=true (jar build với -Paot)
+ * aot-cds - như aot, chạy từ jar đã extract với archive CDS tạo bằng một lần chạy huấn luyện
+ * Cần PostgreSQL (jar không có H2), schema được tạo ở lần chạy đầu:
+ * mvn -Paot,load-test verify -Dload.main=com.example.demo.loadtest.StartupTimer
+ *     -Dload.args="url=jdbc:postgresql://localhost:5432/startup_bench runs=5 jvm=-XX:ActiveProcessorCount=1"
+ */
+public final class StartupTimer {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("url", "");
+        DEFAULTS.put("username", "postgres");
+        DEFAULTS.put("password", "123456");
+        DEFAULTS.put("jar", "");
+        DEFAULTS.put("runs", "5");
+        DEFAULTS.put("port", "18080");
+        // Tham số JVM chung cho mọi lần chạy, phân cách bằng dấu phẩy, ví dụ -XX:ActiveProcessorCount=1,-Xmx512m
+        DEFAULTS.put("jvm", "");
+        DEFAULTS.put("timeout", "180");
+    }
+
+    private static final String AOT_INITIALIZER = "BOOT-INF/classes/com/example/demo/DemoApplication__ApplicationContextInitializer.class";
+
+    private final Map<String, String> options;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+    private final Path work = Path.of("target", "startup");
+
+    private StartupTimer(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            String key = arg.substring(0, Math.max(arg.indexOf('='), 0));
+            if (!DEFAULTS.containsKey(key)) {
+                System.err.println("unknown option " + arg + ", expected one of " + DEFAULTS.keySet());
+                System.exit(2);
+            }
+            options.put(key, arg.substring(arg.indexOf('=') + 1));
+        }
+        if (options.get("url").isBlank()) {
+            System.err.println("url=jdbc:postgresql://... is required");
+            System.exit(2);
+        }
+        new StartupTimer(options).run();
+    }
+
+    private void run() throws Exception {
+        Path jar = jar();
+        Files.createDirectories(work);
+        List<String> appArguments = List.of(
+                "--server.port=" + options.get("port"),
+                "--spring.datasource.url=" + options.get("url"),
+                "--spring.datasource.username=" + options.get("username"),
+                "--spring.datasource.password=" + options.get("password"));
+
+        // Lần chạy đầu tạo schema bằng Flyway, không tính
+        measure(command(List.of(), jar, appArguments, "--spring.profiles.active=prod"));
+
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("before", command(List.of(), jar, appArguments,
+                "--spring.flyway.enabled=false", "--spring.jpa.hibernate.ddl-auto=update",
+                "--spring.jpa.show-sql=true", "--spring.jpa.properties.hibernate.format_sql=true"));
+        modes.put("flyway", command(List.of(), jar, appArguments, "--spring.profiles.active=prod"));
+        if (hasAotInitializer(jar)) {
+            modes.put("aot", command(List.of("-Dspring.aot.enabled=true"), jar, appArguments,
+                    "--spring.profiles.active=prod"));
+            Path extracted = extract(jar);
+            Path archive = work.resolve("application.jsa").toAbsolutePath();
+            train(extracted, archive, appArguments);
+            modes.put("aot-cds", command(List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + archive),
+                    extracted, appArguments, "--spring.profiles.active=prod"));
+        } else {
+            System.out.println("Jar was built without -Paot, skipping the aot and aot-cds modes");
+        }
+
+        int runs = Integer.parseInt(options.get("runs"));
+        Map<String, long[]> results = new LinkedHashMap<>();
+        for (int run = 0; run < runs; run++) {
+            // Xen kẽ các chế độ để nhiễu của máy chia đều
+            for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+                results.computeIfAbsent(mode.getKey(), key -> new long[runs])[run] = measure(mode.getValue());
+            }
+        }
+
+        System.out.printf("%nTime to first successful request (ms, %d runs)%n", runs);
+        System.out.println("mode      median  min     max");
+        for (Map.Entry<String, long[]> result : results.entrySet()) {
+            long[] millis = result.getValue().clone();
+            Arrays.sort(millis);
+            System.out.printf("%-9s %-7d %-7d %d%n", result.getKey(), millis[millis.length / 2], millis[0],
+                    millis[millis.length - 1]);
+        }
+    }
+
+    private Path jar() throws IOException {
+        if (!options.get("jar").isBlank()) {
+            return Path.of(options.get("jar"));
+        }
+        try (Stream<Path> files = Files.list(Path.of("target"))) {
+            return files.filter(file -> file.toString().endsWith(".jar") && !file.toString().endsWith("-plain.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IOException("No jar in target/, run mvn package first"));
+        }
+    }
+
+    private static boolean hasAotInitializer(Path jar) throws IOException {
+        try (JarFile file = new JarFile(jar.toFile())) {
+            return file.getEntry(AOT_INITIALIZER) != null;
+        }
+    }
+
+    // Bố cục đã extract (java -Djarmode=tools): class nạp từ các jar thường nên CDS dùng được
+    private Path extract(Path jar) throws Exception {
+        Path destination = work.resolve("extracted");
+        run(List.of(java(), "-Djarmode=tools", "-jar", jar.toString(), "extract", "--force",
+                "--destination", destination.toString()));
+        return destination.resolve(jar.getFileName());
+    }
+
+    // Chạy tới khi context refresh xong rồi thoát, class đã nạp được ghi vào archive lúc JVM dừng
+    private void train(Path jar, Path archive, List<String> appArguments) throws Exception {
+        List<String> command = command(List.of("-Dspring.aot.enabled=true", "-XX:ArchiveClassesAtExit=" + archive,
+                "-Dspring.context.exit=onRefresh"), jar, appArguments, "--spring.profiles.active=prod");
+        run(command);
+    }
+
+    private List<String> command(List<String> jvmFlags, Path jar, List<String> appArguments, String... extra) {
+        List<String> command = new ArrayList<>();
+        command.add(java());
+        if (!options.get("jvm").isBlank()) {
+            command.addAll(List.of(options.get("jvm").split(",")));
+        }
+        command.addAll(jvmFlags);
+        command.add("-jar");
+        command.add(jar.toString());
+        command.addAll(appArguments);
+        command.addAll(List.of(extra));
+        return command;
+    }
+
+    private long measure(List<String> command) throws Exception {
+        URI health = URI.create("http://localhost:" + options.get("port") + "/actuator/health");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("timeout")));
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(work.resolve("app.log").toFile())
+                .start();
+        try {
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue()
+                            + ", see " + work.resolve("app.log"));
+                }
+                try {
+                    HttpResponse<Void> response = client.send(HttpRequest.newBuilder(health)
+                            .timeout(Duration.ofSeconds(5)).build(), HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException e) {
+                    // Chưa mở cổng
+                }
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+            throw new IllegalStateException("No successful request within " + options.get("timeout") + "s");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private void run(List<String> command) throws Exception {
+        int exit = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(work.resolve("setup.log").toFile())
+                .start()
+                .waitFor();
+        if (exit != 0) {
+            throw new IllegalStateException(String.join(" ", command) + " exited with " + exit
+                    + ", see " + work.resolve("setup.log"));
+        }
+    }
+
+    private static String java() {
+        return ProcessHandle.current().info().command().orElse("java");
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.loadtest.AccessLogParser.RecordedRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Tỉ lệ các endpoint trong access log. Endpoint là phương thức + đường dẫn đã thay đoạn số bằng {id}
+ * (GET /api/students/17 -> GET /api/students/{id}); khi phát lại, {id} được thay bằng id có thật
+ * và query lấy ngẫu nhiên từ các request đã ghi của endpoint đó.
+ */
+final class TrafficMix {
+
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    record Endpoint(String method, String template, List<String> recordedQueries) {
+
+        String name() {
+            return method + " " + template;
+        }
+
+        // Đường dẫn để gửi, với {id} là một id học viên có thật
+        String target(List<Long> ids) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long id = ids.isEmpty() ? 1 : ids.get(random.nextInt(ids.size()));
+            String path = template.replace("{id}", String.valueOf(id));
+            return path + recordedQueries.get(random.nextInt(recordedQueries.size()));
+        }
+    }
+
+    private final List<Endpoint> endpoints;
+    private final double[] cumulative;
+    private final int total;
+
+    private TrafficMix(List<Endpoint> endpoints, double[] cumulative, int total) {
+        this.endpoints = endpoints;
+        this.cumulative = cumulative;
+        this.total = total;
+    }
+
+    // include: regex trên tên endpoint, ví dụ "GET /api/students.*" để chỉ phát lại lượt đọc
+    static TrafficMix of(List<RecordedRequest> requests, Pattern include) {
+        Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+        for (RecordedRequest request : requests) {
+            String target = request.target();
+            int q = target.indexOf('?');
+            String path = q < 0 ? target : target.substring(0, q);
+            if (!path.startsWith("/api/")) {
+                continue;
+            }
+            String template = NUMERIC_SEGMENT.matcher(path).replaceAll("/{id}");
+            String name = request.method() + " " + template;
+            if (!include.matcher(name).matches()) {
+                continue;
+            }
+            endpoints.computeIfAbsent(name, key -> new Endpoint(request.method(), template, new ArrayList<>()))
+                    .recordedQueries().add(q < 0 ? "" : target.substring(q));
+        }
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("No /api/ requests in the access logs match " + include);
+        }
+        List<Endpoint> list = new ArrayList<>(endpoints.values());
+        double[] cumulative = new double[list.size()];
+        int total = list.stream().mapToInt(endpoint -> endpoint.recordedQueries().size()).sum();
+        double sum = 0;
+        for (int i = 0; i < list.size(); i++) {
+            sum += list.get(i).recordedQueries().size() / (double) total;
+            cumulative[i] = sum;
+        }
+        cumulative[cumulative.length - 1] = 1.0;
+        return new TrafficMix(list, cumulative, total);
+    }
+
+    Endpoint next() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) {
+                return endpoints.get(i);
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    double share(Endpoint endpoint) {
+        return endpoint.recordedQueries().size() / (double) total;
+    }
+
+    int recorded() {
+        return total;
+    }
+}
@@ -0,0 +1,501 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dto.BulkStudentResult;
+import com.example.demo.loadtest.TrafficMix.Endpoint;
+import com.example.demo.model.Student;
+import com.example.demo.service.StudentService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Phát lại tỉ lệ request trong logs/access_log.*.txt theo mô hình mở: request đến theo phân phối Poisson
+ * với tốc độ cố định, không chờ response trước (client chậm không làm giảm tải như vòng lặp đóng), độ trễ
+ * tính từ thời điểm request lẽ ra được gửi nên không bị coordinated omission. Mỗi mức tải in HdrHistogram
+ * theo endpoint, throughput, số 409 (rate limit), 503 (bulkhead/hàng đợi băm mật khẩu) và lỗi, CPU của
+ * process (/actuator/metrics), rồi gợi ý replicaCount và CPU limit cho backend-chart.
+ *
+ * Cách chạy: xem profile load-test trong pom.xml. Tham số dạng key=value (mặc định trong DEFAULTS),
+ * tham số bắt đầu bằng -- được chuyển cho ứng dụng khi tự khởi động, ví dụ --rate-limit.enabled=false.
+ */
+public final class TrafficReplay {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        // Thư mục chứa access_log*.txt; pattern mặc định lấy từ application.properties
+        DEFAULTS.put("logs", "logs");
+        DEFAULTS.put("pattern", "");
+        DEFAULTS.put("include", ".*");
+        // Trống: tự khởi động ứng dụng (profile test, H2 hoặc url=jdbc:postgresql://... - schema bị tạo lại)
+        DEFAULTS.put("target", "");
+        DEFAULTS.put("url", "");
+        DEFAULTS.put("username", "postgres");
+        DEFAULTS.put("password", "123456");
+        DEFAULTS.put("students", "10000");
+        DEFAULTS.put("users", "10");
+        // Tài khoản có sẵn khi dùng target=http://...: user:password,user:password
+        DEFAULTS.put("credentials", "admin:password123");
+        // Các mức tải (request/giây), chạy lần lượt, mỗi mức seconds giây sau warmup ở mức đầu tiên
+        DEFAULTS.put("rates", "25,50,100");
+        DEFAULTS.put("seconds", "30");
+        DEFAULTS.put("warmup", "10");
+        DEFAULTS.put("timeout", "30");
+        DEFAULTS.put("max-in-flight", "5000");
+        // Mức tải "chịu được": p99 không quá slo-p99-ms và tỉ lệ lỗi (503, 5xx, mất kết nối) không quá max-error-rate
+        DEFAULTS.put("slo-p99-ms", "250");
+        DEFAULTS.put("max-error-rate", "0.01");
+        // Tải đỉnh cần phục vụ (request/giây) để tính replicaCount; 0 thì chỉ in mức chịu được của một pod
+        DEFAULTS.put("peak-rps", "0");
+        DEFAULTS.put("headroom", "0.3");
+    }
+
+    private static final String LOGIN = "/api/auth/login";
+    private static final String REFRESH = "/api/auth/refresh";
+    private static final String LOGOUT = "/api/auth/logout";
+
+    private final Map<String, String> options;
+    private final List<String> appArguments;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private String baseUrl;
+    private List<String[]> credentials;
+    private List<Session> sessions;
+    private List<Long> ids;
+    // Refresh token của các lượt login được phát lại, dùng cho lượt refresh/logout được phát lại
+    private final ConcurrentLinkedQueue<String> replayedRefreshTokens = new ConcurrentLinkedQueue<>();
+
+    private TrafficReplay(Map<String, String> options, List<String> appArguments) {
+        this.options = options;
+        this.appArguments = appArguments;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        List<String> appArguments = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                appArguments.add(arg);
+            } else if (arg.contains("=")) {
+                String key = arg.substring(0, arg.indexOf('='));
+                if (!DEFAULTS.containsKey(key)) {
+                    System.err.println("unknown option " + key + ", expected one of " + DEFAULTS.keySet());
+                    System.exit(2);
+                }
+                options.put(key, arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        new TrafficReplay(options, appArguments).run();
+    }
+
+    private void run() throws Exception {
+        TrafficMix mix = TrafficMix.of(parser().parse(logFiles()), Pattern.compile(options.get("include")));
+        System.out.printf("Recorded mix (%d requests):%n", mix.recorded());
+        for (Endpoint endpoint : mix.endpoints()) {
+            System.out.printf("  %-40s %5.1f%%%n", endpoint.name(), mix.share(endpoint) * 100);
+        }
+
+        ConfigurableApplicationContext context = null;
+        try {
+            if (options.get("target").isBlank()) {
+                context = start();
+            } else {
+                baseUrl = options.get("target").replaceAll("/$", "");
+                credentials = Stream.of(options.get("credentials").split(","))
+                        .map(credential -> credential.split(":", 2))
+                        .toList();
+            }
+            sessions = new ArrayList<>();
+            for (String[] credential : credentials) {
+                sessions.add(login(credential[0], credential[1]));
+            }
+            if (ids == null) {
+                ids = fetchIds();
+            }
+            System.out.printf("Target %s, %d sessions, %d student ids%n", baseUrl, sessions.size(), ids.size());
+
+            List<Integer> rates = Stream.of(options.get("rates").split(",")).map(String::trim).map(Integer::valueOf).toList();
+            Duration measure = Duration.ofSeconds(Long.parseLong(options.get("seconds")));
+            long warmup = Long.parseLong(options.get("warmup"));
+            if (warmup > 0) {
+                step(mix, rates.get(0), Duration.ofSeconds(warmup));
+            }
+            List<StepResult> results = new ArrayList<>();
+            for (int rate : rates) {
+                refreshSessions();
+                StepResult result = step(mix, rate, measure);
+                result.print();
+                results.add(result);
+            }
+            summarize(results);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private AccessLogParser parser() throws IOException {
+        String pattern = options.get("pattern");
+        return pattern.isBlank() ? AccessLogParser.fromApplicationProperties() : new AccessLogParser(pattern);
+    }
+
+    private List<Path> logFiles() throws IOException {
+        Path directory = Path.of(options.get("logs"));
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> logs = files.filter(file -> file.getFileName().toString().matches("access_log.*\\.txt"))
+                    .sorted()
+                    .toList();
+            if (logs.isEmpty()) {
+                throw new IOException("No access_log*.txt in " + directory.toAbsolutePath());
+            }
+            return logs;
+        }
+    }
+
+    // Ứng dụng trong cùng JVM: CPU đo được gồm cả phần của bộ phát tải
+    private ConfigurableApplicationContext start() {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.HTTP_REQUEST=WARN"));
+        if (!options.get("url").isBlank()) {
+            arguments.add("--spring.datasource.url=" + options.get("url"));
+            arguments.add("--spring.datasource.username=" + options.get("username"));
+            arguments.add("--spring.datasource.password=" + options.get("password"));
+            arguments.add("--spring.datasource.driver-class-name=org.postgresql.Driver");
+            arguments.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect");
+        }
+        arguments.addAll(appArguments);
+        // devtools (classpath test) sẽ khởi động lại main trong classloader mới
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .profiles("test")
+                .run(arguments.toArray(String[]::new));
+        baseUrl = "http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port");
+
+        int students = Integer.parseInt(options.get("students"));
+        ids = context.getBean(StudentService.class).bulkUpsert(IntStream.range(0, students).mapToObj(i -> {
+            Student student = new Student();
+            student.setFullName("Học viên tải " + i);
+            student.setBirthDate(LocalDate.of(2000, 1, 1).plusDays(i % 2000));
+            student.setSchoolCategory("Đại học Công nghệ (UET)");
+            return student;
+        }).iterator()).getResults().stream().map(BulkStudentResult::getId).toList();
+
+        // Tài khoản có cả ROLE_ADMIN để phát lại được cả lượt ghi
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        String password = context.getBean(PasswordEncoder.class).encode("load-secret");
+        for (String role : List.of("ROLE_ADMIN", "ROLE_USER")) {
+            jdbc.update("INSERT INTO roles (name) SELECT ? WHERE NOT EXISTS (SELECT 1 FROM roles WHERE name = ?)", role, role);
+        }
+        credentials = new ArrayList<>();
+        for (int i = 0; i < Integer.parseInt(options.get("users")); i++) {
+            String username = "load-user-" + i;
+            jdbc.update("INSERT INTO users (username, password, enabled) VALUES (?, ?, true)", username, password);
+            jdbc.update("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM users u, roles r WHERE u.username = ?",
+                    username);
+            credentials.add(new String[]{username, "load-secret"});
+        }
+        return context;
+    }
+
+    private Session login(String username, String password) throws Exception {
+        ObjectNode body = objectMapper.createObjectNode().put("username", username).put("password", password);
+        return session(username, send(LOGIN, body));
+    }
+
+    // Login/refresh dùng chung rate limit ẩn danh theo IP: 409 thì chờ Retry-After rồi thử lại
+    private JsonNode send(String path, JsonNode body) throws Exception {
+        while (true) {
+            HttpResponse<String> response = client.send(post(path, body.toString()).build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200) {
+                return objectMapper.readTree(response.body());
+            }
+            if (response.statusCode() != 409 && response.statusCode() != 429 && response.statusCode() != 503) {
+                throw new IllegalStateException(path + " returned " + response.statusCode() + ": " + response.body());
+            }
+            long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+            System.out.printf("%s returned %d, retrying in %ds%n", path, response.statusCode(), retryAfter);
+            TimeUnit.SECONDS.sleep(Math.max(retryAfter, 1));
+        }
+    }
+
+    private static Session session(String username, JsonNode response) {
+        return new Session(username, response.get("token").asText(), response.get("refreshToken").asText(),
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(response.get("expiresIn").asLong() / 2));
+    }
+
+    // Access token sống ngắn (jwt.expiration): làm mới giữa các mức tải khi đã qua nửa thời hạn
+    private void refreshSessions() throws Exception {
+        long now = System.nanoTime();
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            if (now - session.refreshAt() >= 0) {
+                ObjectNode body = objectMapper.createObjectNode().put("refreshToken", session.refreshToken());
+                sessions.set(i, session(session.username(), send(REFRESH, body)));
+            }
+        }
+    }
+
+    private List<Long> fetchIds() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/students"))
+                .header("Authorization", "Bearer " + sessions.get(0).accessToken())
+                .build(), HttpResponse.BodyHandlers.ofString());
+        List<Long> fetched = new ArrayList<>();
+        if (response.statusCode() == 200) {
+            objectMapper.readTree(response.body()).forEach(student -> fetched.add(student.get("id").asLong()));
+        }
+        return fetched;
+    }
+
+    private StepResult step(TrafficMix mix, int rate, Duration duration) throws Exception {
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        mix.endpoints().forEach(endpoint -> stats.put(endpoint.name(), new EndpointStats()));
+        AtomicInteger inFlight = new AtomicInteger();
+        LongAdder dropped = new LongAdder();
+        int maxInFlight = Integer.parseInt(options.get("max-in-flight"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.get("timeout")));
+
+        double cpuBefore = cpuSeconds();
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / (double) rate;
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            long intended = start;
+            while (true) {
+                // Khoảng cách giữa hai request theo phân phối mũ (Poisson)
+                intended += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos);
+                if (intended - end >= 0) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (inFlight.get() >= maxInFlight) {
+                    dropped.increment();
+                    continue;
+                }
+                Endpoint endpoint = mix.next();
+                EndpointStats endpointStats = stats.get(endpoint.name());
+                long scheduled = intended;
+                inFlight.incrementAndGet();
+                requests.submit(() -> {
+                    try {
+                        HttpResponse<String> response = client.send(request(endpoint, timeout),
+                                HttpResponse.BodyHandlers.ofString());
+                        endpointStats.record(response.statusCode(), System.nanoTime() - scheduled);
+                        keepRefreshToken(endpoint, response);
+                    } catch (Exception e) {
+                        endpointStats.failed(System.nanoTime() - scheduled);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    return null;
+                });
+            }
+        }
+        // Số core trung bình trong cả bước, kể cả lúc chờ các request cuối hoàn tất
+        double cores = (cpuSeconds() - cpuBefore) / ((System.nanoTime() - start) / 1e9);
+        return new StepResult(rate, duration, stats, dropped.sum(), cores);
+    }
+
+    private HttpRequest request(Endpoint endpoint, Duration timeout) throws Exception {
+        String target = endpoint.target(ids);
+        String path = endpoint.template();
+        boolean post = endpoint.method().equals("POST");
+        HttpRequest.Builder builder;
+        if (post && path.equals(LOGIN)) {
+            String[] credential = credentials.get(ThreadLocalRandom.current().nextInt(credentials.size()));
+            builder = post(target, objectMapper.createObjectNode()
+                    .put("username", credential[0]).put("password", credential[1]).toString());
+        } else if (post && (path.equals(REFRESH) || path.equals(LOGOUT))) {
+            String refreshToken = replayedRefreshTokens.poll();
+            builder = post(target, objectMapper.createObjectNode()
+                    .put("refreshToken", refreshToken == null ? "" : refreshToken).toString());
+        } else if (post || endpoint.method().equals("PUT")) {
+            JsonNode body = path.endsWith("/bulk") ? students(10) : students(1).get(0);
+            builder = HttpRequest.newBuilder(URI.create(baseUrl + target))
+                    .header("Content-Type", "application/json")
+                    .method(endpoint.method(), HttpRequest.BodyPublishers.ofString(body.toString()));
+        } else {
+            builder = HttpRequest.newBuilder(URI.create(baseUrl + target))
+                    .method(endpoint.method(), HttpRequest.BodyPublishers.noBody());
+        }
+        if (!path.startsWith("/api/auth/")) {
+            Session session = sessions.get(ThreadLocalRandom.current().nextInt(sessions.size()));
+            builder.header("Authorization", "Bearer " + session.accessToken());
+        }
+        return builder.timeout(timeout).build();
+    }
+
+    private void keepRefreshToken(Endpoint endpoint, HttpResponse<String> response) throws IOException {
+        if (response.statusCode() == 200 && endpoint.method().equals("POST")
+                && (endpoint.template().equals(LOGIN) || endpoint.template().equals(REFRESH))) {
+            replayedRefreshTokens.offer(objectMapper.readTree(response.body()).get("refreshToken").asText());
+        }
+    }
+
+    private HttpRequest.Builder post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private ArrayNode students(int count) {
+        ArrayNode students = objectMapper.createArrayNode();
+        for (int i = 0; i < count; i++) {
+            students.addObject()
+                    .put("fullName", "Học viên phát lại " + ThreadLocalRandom.current().nextInt(1_000_000))
+                    .put("birthDate", LocalDate.of(2001, 1, 1).plusDays(i).toString())
+                    .put("schoolCategory", "Đại học Công nghệ (UET)");
+        }
+        return students;
+    }
+
+    private void summarize(List<StepResult> results) {
+        double slo = Double.parseDouble(options.get("slo-p99-ms"));
+        double maxErrorRate = Double.parseDouble(options.get("max-error-rate"));
+        double peak = Double.parseDouble(options.get("peak-rps"));
+        double headroom = Double.parseDouble(options.get("headroom"));
+
+        System.out.printf("%nSizing (p99 <= %.0f ms, error rate <= %.2f%%)%n", slo, maxErrorRate * 100);
+        System.out.println("offered  achieved  served    p99ms     errors%   409%     cpu cores  within SLO");
+        StepResult sustainable = null;
+        for (StepResult result : results) {
+            boolean ok = result.total().percentileMillis(99) <= slo && result.errorRate() <= maxErrorRate;
+            System.out.printf("%-8d %-9.1f %-9.1f %-9.1f %-8.2f %-8.2f %-10s %s%n", result.rate(), result.throughput(),
+                    result.served(), result.total().percentileMillis(99), result.errorRate() * 100, result.rateLimitedRate() * 100,
+                    Double.isNaN(result.cpuCores()) ? "-" : String.format("%.2f", result.cpuCores()), ok ? "yes" : "no");
+            if (ok && (sustainable == null || result.served() > sustainable.served())) {
+                sustainable = result;
+            }
+        }
+        if (sustainable == null) {
+            System.out.println("No rate met the SLO; lower the rates or raise the CPU limit before sizing.");
+            return;
+        }
+        if (sustainable.rateLimitedRate() > 0.1) {
+            // 409 trả rất nhanh nên làm mức chịu được trông cao hơn thực tế
+            System.out.println("Rate limiting rejected most requests; rerun with --rate-limit.enabled=false "
+                    + "(or the production limits) to measure capacity.");
+        }
+        System.out.printf("One pod serves %.1f req/s (409 excluded)", sustainable.served());
+        if (!Double.isNaN(sustainable.cpuCores())) {
+            // Làm tròn lên 100m, cộng headroom
+            long millicores = (long) Math.ceil(sustainable.cpuCores() * (1 + headroom) * 10) * 100;
+            System.out.printf(" using %.2f cores -> resources.limits.cpu: %dm", sustainable.cpuCores(), millicores);
+        }
+        System.out.println();
+        if (peak > 0) {
+            long replicas = (long) Math.ceil(peak * (1 + headroom) / sustainable.served());
+            System.out.printf("Peak %.0f req/s with %.0f%% headroom -> replicaCount: %d%n", peak, headroom * 100, replicas);
+        }
+    }
+
+    private record Session(String username, String accessToken, String refreshToken, long refreshAt) {
+    }
+
+    private record StepResult(int rate, Duration duration, Map<String, EndpointStats> endpoints, long dropped,
+                              double cpuCores) {
+
+        EndpointStats total() {
+            EndpointStats total = new EndpointStats();
+            endpoints.values().forEach(total::add);
+            return total;
+        }
+
+        double throughput() {
+            return total().count() / (double) duration.toSeconds();
+        }
+
+        // Request thực sự được xử lý (không tính 409 của rate limit)
+        double served() {
+            EndpointStats total = total();
+            return (total.count() - total.rateLimited()) / (double) duration.toSeconds();
+        }
+
+        double errorRate() {
+            EndpointStats total = total();
+            return total.count() == 0 ? 0 : (total.errors() + dropped) / (double) (total.count() + dropped);
+        }
+
+        double rateLimitedRate() {
+            EndpointStats total = total();
+            return total.count() == 0 ? 0 : total.rateLimited() / (double) total.count();
+        }
+
+        void print() {
+            System.out.printf("%n== %d req/s offered for %ds: %.1f req/s completed, dropped %d, cpu %s cores%n",
+                    rate, duration.toSeconds(), throughput(), dropped,
+                    Double.isNaN(cpuCores) ? "-" : String.format("%.2f", cpuCores));
+            System.out.println("endpoint                                 count    p50ms    p90ms    p99ms    p99.9ms  maxms     "
+                    + "2xx/3xx  4xx     409     503     5xx     failed");
+            endpoints.forEach(this::print);
+            print("TOTAL", total());
+        }
+
+        private void print(String name, EndpointStats stats) {
+            if (stats.count() == 0) {
+                return;
+            }
+            System.out.printf("%-40s %-8d %-8.1f %-8.1f %-8.1f %-8.1f %-9.1f %-8d %-7d %-7d %-7d %-7d %d%n",
+                    name, stats.count(), stats.percentileMillis(50), stats.percentileMillis(90),
+                    stats.percentileMillis(99), stats.percentileMillis(99.9), stats.maxMillis(), stats.success(),
+                    stats.clientErrors(), stats.rateLimited(), stats.shed(), stats.serverErrors(), stats.failures());
+        }
+    }
+
+    // Thời gian CPU của process (process.cpu.time) qua actuator, tính bằng giây; NaN nếu không đọc được
+    private double cpuSeconds() {
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/process.cpu.time"))
+                    .timeout(Duration.ofSeconds(5))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            JsonNode metric = objectMapper.readTree(response.body());
+            double value = metric.path("measurements").path(0).path("value").asDouble(Double.NaN);
+            String unit = metric.path("baseUnit").asText("");
+            return unit.startsWith("n") ? value / 1e9 : unit.startsWith("m") ? value / 1e3 : value;
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+}
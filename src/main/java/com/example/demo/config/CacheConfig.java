@@ -0,0 +1,98 @@
+package com.example.demo.config;
+
+import com.example.demo.metrics.RequestTimings;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// Advice cache nằm ngoài advice transaction: cache hit không mở transaction (không mượn connection),
+// còn xóa cache khi ghi chạy sau khi commit nên request khác không nạp lại dữ liệu cũ vào cache
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+    // Học viên theo id
+    public static final String STUDENTS = "students";
+    // Danh sách/trang học viên
+    public static final String STUDENT_PAGES = "studentPages";
+    // Kết quả tìm kiếm theo tên/trường
+    public static final String STUDENT_SEARCH = "studentSearch";
+    // Byte JSON/gzip đã serialize của danh sách và kết quả tìm kiếm (StudentPayloadCache)
+    public static final String STUDENT_PAYLOADS = "studentPayloads";
+    // UserDetails (không kèm mật khẩu) theo username cho JwtAuthenticationFilter
+    public static final String PRINCIPALS = "principals";
+
+    @Value("${student.cache.students.spec:maximumSize=10000,expireAfterWrite=10m,recordStats}")
+    private String studentsSpec;
+
+    @Value("${student.cache.pages.spec:maximumSize=200,expireAfterWrite=1m,recordStats}")
+    private String pagesSpec;
+
+    @Value("${student.cache.search.spec:maximumSize=1000,expireAfterWrite=5m,recordStats}")
+    private String searchSpec;
+
+    // Mỗi mục có thể tới vài trăm KB (danh sách tương thích 1000 học viên), nên giữ số lượng nhỏ
+    @Value("${student.cache.payloads.spec:maximumSize=200,expireAfterWrite=5m,recordStats}")
+    private String payloadsSpec;
+
+    @Value("${security.principal-cache.spec:maximumSize=10000,expireAfterWrite=60s,recordStats}")
+    private String principalsSpec;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Các cache được tạo sẵn khi khởi động để actuator gắn metrics cache_gets/cache_evictions vào Prometheus
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        register(cacheManager, STUDENTS, studentsSpec);
+        register(cacheManager, STUDENT_PAGES, pagesSpec);
+        register(cacheManager, STUDENT_SEARCH, searchSpec);
+        register(cacheManager, STUDENT_PAYLOADS, payloadsSpec);
+        register(cacheManager, PRINCIPALS, principalsSpec);
+        return cacheManager;
+    }
+
+    // @Cacheable(sync = true) trên cache thường gọi loader (truy vấn JDBC) bên trong ConcurrentHashMap.compute,
+    // tức là trong khối synchronized: virtual thread bị ghim vào carrier suốt thời gian chờ DB.
+    // Khi bật virtual thread thì dùng AsyncCache, loader chạy trên virtual thread riêng ngoài khóa của map.
+    private void register(CaffeineCacheManager cacheManager, String name, String spec) {
+        if (virtualThreads) {
+            cacheManager.setAsyncCacheMode(true);
+            cacheManager.registerCustomCache(name, Caffeine.from(spec)
+                    .executor(requestScoped(Executors.newVirtualThreadPerTaskExecutor()))
+                    .buildAsync());
+        } else {
+            cacheManager.registerCustomCache(name, Caffeine.from(spec).build());
+        }
+    }
+
+    // Loader chạy trên luồng khác trong khi luồng request chờ kết quả: mang theo request attributes (ghim primary
+    // sau khi ghi của ReadWriteRoutingDataSource) và RequestTimings (giai đoạn service/db/serialize của lần cache miss)
+    private static Executor requestScoped(Executor executor) {
+        return task -> {
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            RequestTimings timings = RequestTimings.current();
+            executor.execute(() -> {
+                RequestContextHolder.setRequestAttributes(attributes);
+                RequestTimings.attach(timings);
+                try {
+                    task.run();
+                } finally {
+                    RequestContextHolder.resetRequestAttributes();
+                    RequestTimings.end();
+                }
+            });
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.ReadWriteRoutingDataSource;
+import com.example.demo.datasource.ReplicaDataSource;
+import com.example.demo.datasource.ReplicaLagWindow;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Thay DataSource mặc định khi datasource.routing.enabled=true: ghi và transaction thường đi primary,
+// transaction read-only (đọc học viên, loadUserByUsername) đi replica
+@Configuration
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource,
+                                               DataSourceRoutingProperties routing,
+                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (int i = 0; i < routing.getReplicas().size(); i++) {
+            pools.add(replicaPool("replica-" + i, routing.getReplicas().get(i), primaryDataSource, routing,
+                    meterRegistry.getIfAvailable()));
+        }
+        return new ReplicaDataSource(primaryDataSource, pools, routing.getStrategy(), routing.getFailureCooldown());
+    }
+
+    // Khóa đọc/ghi được quyết định khi câu lệnh đầu tiên chạy, không phải lúc transaction bắt đầu
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource,
+                                 ReplicaLagWindow replicaLagWindow) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource,
+                replicaLagWindow));
+    }
+
+    private static HikariDataSource replicaPool(String name, DataSourceRoutingProperties.Replica replica,
+                                                HikariDataSource primary, DataSourceRoutingProperties routing,
+                                                MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(replica.getUrl());
+        config.setUsername(replica.getUsername() != null ? replica.getUsername() : primary.getUsername());
+        config.setPassword(replica.getPassword() != null ? replica.getPassword() : primary.getPassword());
+        config.setMaximumPoolSize(replica.getMaximumPoolSize() != null
+                ? replica.getMaximumPoolSize() : primary.getMaximumPoolSize());
+        config.setConnectionTimeout(routing.getConnectionTimeout().toMillis());
+        config.setReadOnly(true);
+        // Replica chưa sẵn sàng lúc khởi động không làm ứng dụng dừng, đọc sẽ chuyển sang primary
+        config.setInitializationFailTimeout(-1);
+        if (meterRegistry != null) {
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        }
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.ReplicaDataSource;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Định tuyến đọc/ghi giữa primary (spring.datasource.*) và các replica PostgreSQL (prefix datasource.routing.*)
+@Data
+@Component
+@ConfigurationProperties(prefix = "datasource.routing")
+public class DataSourceRoutingProperties {
+
+    private boolean enabled = false;
+
+    // round-robin hoặc least-loaded
+    private ReplicaDataSource.Strategy strategy = ReplicaDataSource.Strategy.LEAST_LOADED;
+
+    // Replica không cấp được connection bị bỏ qua trong khoảng này rồi mới thử lại
+    private Duration failureCooldown = Duration.ofSeconds(10);
+
+    // Thời gian chờ connection từ pool replica, ngắn để chuyển sang replica khác/primary nhanh
+    private Duration connectionTimeout = Duration.ofSeconds(1);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String url;
+        // Để trống thì dùng username/password của primary
+        private String username;
+        private String password;
+        // Để trống thì bằng spring.datasource.hikari.maximum-pool-size
+        private Integer maximumPoolSize;
+    }
+}
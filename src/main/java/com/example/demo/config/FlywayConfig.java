@@ -0,0 +1,24 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    // Đọc lúc chạy: với Spring AOT, spring.flyway.enabled bị cố định lúc build nên không tắt được Flyway
+    // cho lần chạy huấn luyện CDS (không có DB) trong Dockerfile
+    @Value("${schema.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy() {
+        return flyway -> {
+            if (migrateOnStartup) {
+                flyway.migrate();
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.config;
+
+import com.example.demo.filter.JdbcRateLimitBackend;
+import com.example.demo.filter.RateLimitBackend;
+import com.example.demo.filter.RateLimitBucketStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+public class RateLimitConfig {
+
+    // Chọn lúc chạy thay vì @ConditionalOnProperty: với Spring AOT điều kiện bị cố định lúc build,
+    // còn rate-limit.backend được đặt theo môi trường (RATE_LIMIT_BACKEND trong backend-chart)
+    @Bean
+    public RateLimitBackend rateLimitBackend(RateLimitProperties properties, ObjectProvider<JdbcTemplate> jdbcTemplate) {
+        return switch (properties.getBackend()) {
+            // Mặc định: mỗi pod tự giới hạn, tổng giới hạn tăng theo replicaCount
+            case "memory" -> new RateLimitBucketStore(properties.getMaxKeys(), properties.effectiveExpireAfterAccess());
+            // Giới hạn chung cho cả cluster qua bảng rate_limit_buckets
+            case "jdbc" -> new JdbcRateLimitBackend(jdbcTemplate.getObject(), properties.getMaxKeys(),
+                    properties.effectiveExpireAfterAccess(),
+                    properties.getLease().getSize(), properties.getLease().getTtl());
+            default -> throw new IllegalStateException("Unknown rate-limit.backend: " + properties.getBackend());
+        };
+    }
+}
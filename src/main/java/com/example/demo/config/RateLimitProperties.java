@@ -0,0 +1,81 @@
+package com.example.demo.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Cấu hình SimpleRateLimitFilter (prefix rate-limit.*)
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // memory: bucket trong bộ nhớ của từng pod; jdbc: bucket dùng chung trong bảng rate_limit_buckets
+    private String backend = "memory";
+
+    // Backend jdbc: mỗi lần truy cập DB lấy trước tối đa lease.size token, token chưa dùng hết hạn sau lease.ttl
+    private Lease lease = new Lease();
+
+    // Số bucket tối đa giữ trong bộ nhớ, bucket không được dùng sẽ bị bỏ sau expire-after-access
+    private long maxKeys = 100_000;
+    private Duration expireAfterAccess = Duration.ofMinutes(10);
+
+    // Giới hạn mặc định theo IP (chưa đăng nhập) và theo username (đã đăng nhập)
+    private Limit anonymous = new Limit(10, Duration.ofMinutes(1));
+    private Limit authenticated = new Limit(10, Duration.ofMinutes(1));
+
+    // Giới hạn riêng cho từng username, ưu tiên hơn routes và authenticated
+    private Map<String, Limit> principals = new HashMap<>();
+
+    // Giới hạn theo route (Ant pattern), route khớp đầu tiên được dùng và có bucket riêng
+    private List<Route> routes = new ArrayList<>();
+
+    // Bucket bị bỏ sớm hơn chu kỳ dài nhất thì người dùng được reset giới hạn, nên TTL ít nhất bằng chu kỳ đó
+    public Duration effectiveExpireAfterAccess() {
+        List<Limit> limits = new ArrayList<>(principals.values());
+        limits.add(anonymous);
+        limits.add(authenticated);
+        for (Route route : routes) {
+            limits.add(route.getAnonymous());
+            limits.add(route.getAuthenticated());
+        }
+        Duration result = expireAfterAccess;
+        for (Limit limit : limits) {
+            if (limit != null && limit.getPeriod().compareTo(result) > 0) {
+                result = limit.getPeriod();
+            }
+        }
+        return result;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        private int capacity;
+        private Duration period;
+    }
+
+    @Data
+    public static class Lease {
+        private int size = 20;
+        private Duration ttl = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Route {
+        private String pattern;
+        private Limit anonymous;
+        private Limit authenticated;
+    }
+}
@@ -1,8 +1,17 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.IssuedRefreshToken;
 import com.example.demo.dto.LoginRequest;
 import com.example.demo.dto.LoginResponse;
+import com.example.demo.dto.RefreshTokenRequest;
+import com.example.demo.metrics.TimedEndpoint;
+import com.example.demo.security.InvalidRefreshTokenException;
 import com.example.demo.security.JwtUtil;
+import com.example.demo.security.LoginAttemptThrottle;
+import com.example.demo.security.PasswordHashingRejectedException;
+import com.example.demo.service.CustomUserDetailsService;
+import com.example.demo.service.RefreshTokenService;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,9 +20,11 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -27,8 +38,27 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private LoginAttemptThrottle loginAttemptThrottle;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
     @PostMapping("/login")
+    @TimedEndpoint(value = "login", prefix = "auth")
     public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
+        // Username đang bị khóa vì sai nhiều lần: trả 429 trước khi băm mật khẩu
+        long retryAfter = loginAttemptThrottle.retryAfterSeconds(loginRequest.getUsername());
+        if (retryAfter > 0) {
+            return ResponseEntity.status(429)
+                    .header("Retry-After", String.valueOf(retryAfter))
+                    .body(Map.of("error", "Too many failed login attempts",
+                            "message", "Login for this username is temporarily locked",
+                            "code", 429));
+        }
         try {
           
             Authentication authentication = authenticationManager.authenticate(
@@ -39,20 +69,68 @@ public class AuthController {
             );
           
             SecurityContextHolder.getContext().setAuthentication(authentication);
-            String jwt = jwtUtil.generateJwtToken(authentication);
-
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            List<String> roles = userDetails.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .collect(Collectors.toList());
+            IssuedRefreshToken refreshToken = refreshTokenService.issue(userDetails.getUsername());
 
-            return ResponseEntity.ok(new LoginResponse(jwt, userDetails.getUsername(), roles));
+            loginAttemptThrottle.recordSuccess(loginRequest.getUsername());
+            return ResponseEntity.ok(loginResponse(userDetails, refreshToken));
+        } catch (PasswordHashingRejectedException e) {
+            // Hàng đợi băm mật khẩu đầy: không tính là lần sai của user
+            return ResponseEntity.status(503)
+                    .header("Retry-After", "1")
+                    .body(Map.of("error", "Service busy",
+                            "message", "Too many concurrent logins, retry later",
+                            "code", 503));
         } catch (Exception e) {
+            loginAttemptThrottle.recordFailure(loginRequest.getUsername());
             return ResponseEntity.status(401).body("Invalid username or password");
         }
     }
 
+    // Đổi refresh token lấy access token + refresh token mới; token cũ không dùng lại được
+    @PostMapping("/refresh")
+    @TimedEndpoint(value = "refresh", prefix = "auth")
+    public ResponseEntity<?> refreshToken(@RequestBody RefreshTokenRequest request) {
+        try {
+            IssuedRefreshToken refreshToken = refreshTokenService.rotate(request.getRefreshToken());
+            UserDetails userDetails = userDetailsService.loadUserByUsername(refreshToken.username());
+            if (!userDetails.isEnabled()) {
+                refreshTokenService.revokeFamily(refreshToken.familyId());
+                return ResponseEntity.status(401).body("Invalid refresh token");
+            }
+            return ResponseEntity.ok(loginResponse(userDetails, refreshToken));
+        } catch (InvalidRefreshTokenException | UsernameNotFoundException e) {
+            return ResponseEntity.status(401).body("Invalid refresh token");
+        }
+    }
+
+    // Thu hồi phiên của refresh token trong body và/hoặc của access token trong header Authorization
+    @PostMapping("/logout")
+    @TimedEndpoint(value = "logout", prefix = "auth")
+    public ResponseEntity<Void> logout(@RequestBody(required = false) RefreshTokenRequest request,
+                                       @RequestHeader(value = "Authorization", required = false) String authorization) {
+        String revokedFamily = request != null ? refreshTokenService.revoke(request.getRefreshToken()) : null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            Claims claims = jwtUtil.verify(authorization.substring(7));
+            String sessionId = claims != null ? claims.get(JwtUtil.SESSION_CLAIM, String.class) : null;
+            if (sessionId != null && !sessionId.equals(revokedFamily)) {
+                refreshTokenService.revokeFamily(sessionId);
+            }
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private LoginResponse loginResponse(UserDetails userDetails, IssuedRefreshToken refreshToken) {
+        String jwt = jwtUtil.generateJwtToken(userDetails, refreshToken.familyId());
+        List<String> roles = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
+        return new LoginResponse(jwt, jwtUtil.getAccessTokenTtl().toSeconds(), refreshToken.token(),
+                userDetails.getUsername(), roles);
+    }
+
     @GetMapping("/test")
+    @TimedEndpoint(value = "test", prefix = "auth")
     public ResponseEntity<String> testAuth() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         return ResponseEntity.ok("Hello " + auth.getName() + "! Your roles: " + auth.getAuthorities());
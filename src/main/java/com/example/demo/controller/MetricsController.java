@@ -1,15 +1,16 @@
 package com.example.demo.controller;
 
+import com.example.demo.metrics.EndpointMeters;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 
-import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
 @Component
 public class MetricsController {
     
@@ -18,39 +19,49 @@ public class MetricsController {
     @Autowired
     private MeterRegistry meterRegistry;
     
-    private Counter studentRequestCounter;
+    // Counter tổng theo prefix (student_requests_total, auth_requests_total)
+    private final ConcurrentHashMap<String, Counter> requestCounters = new ConcurrentHashMap<>();
     
-    @PostConstruct
-    public void initMetrics() {
+    // Gọi một lần cho mỗi endpoint lúc khởi động (TimedEndpointAspect), không gọi theo từng request
+    public EndpointMeters endpointMeters(String prefix, String endpoint) {
      
-        studentRequestCounter = Counter.builder("student_requests_total")
-                .description("Total number of requests to student endpoints")
+        Counter requests = requestCounters.computeIfAbsent(prefix, p -> Counter.builder(p + "_requests_total")
+                .description("Total number of requests to " + p + " endpoints")
                 .tag("application", "student-management")
-                .register(meterRegistry);
-     
+                .register(meterRegistry));
+        EndpointMeters meters = new EndpointMeters(requests, status -> requestTimer(prefix, endpoint, status));
+        // Đăng ký sẵn series thành công để dashboard thấy endpoint ngay cả khi chưa có request
+        meters.timer(HttpStatus.OK.value());
+        return meters;
     }
     
-    public void incrementStudentRequest() {
-        studentRequestCounter.increment();
-      
+    // Histogram cho histogram_quantile trên Prometheus, kèm các mốc SLO và percentile tính sẵn
+    private Timer requestTimer(String prefix, String endpoint, int status) {
+        return Timer.builder(prefix + "_request_duration")
+                .description("Request duration for " + prefix + " endpoints")
+                .tag("application", "student-management")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome(HttpStatus.Series.resolve(status)))
+                .tag("status", String.valueOf(status))
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .serviceLevelObjectives(Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250),
+                        Duration.ofMillis(500), Duration.ofSeconds(1))
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
     }
-    
-    public Timer.Sample startTimer() {
-     
-        return Timer.start(meterRegistry);
+
+    private static String outcome(HttpStatus.Series series) {
+        if (series == null) {
+            return "UNKNOWN";
+        }
+        switch (series) {
+            case INFORMATIONAL: return "INFORMATIONAL";
+            case SUCCESSFUL: return "SUCCESS";
+            case REDIRECTION: return "REDIRECTION";
+            case CLIENT_ERROR: return "CLIENT_ERROR";
+            default: return "SERVER_ERROR";
+        }
     }
-    
-   public void stopTimer(Timer.Sample sample, String endpoint) {
- 
-    
-    Timer timer = Timer.builder("student_request_duration")
-            .description("Request duration for student endpoints")
-            .tag("application", "student-management")
-            .tag("endpoint", endpoint)
-            .register(meterRegistry);
-    
-    double duration = sample.stop(timer);
-    
-   
 }
-}
\ No newline at end of file
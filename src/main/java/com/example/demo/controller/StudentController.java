@@ -1,12 +1,35 @@
 package com.example.demo.controller;
+import com.example.demo.dto.BulkStudentResponse;
+import com.example.demo.dto.SerializedPayload;
+import com.example.demo.dto.StudentSuggestion;
+import com.example.demo.dto.StudentView;
+import com.example.demo.metrics.TimedEndpoint;
 import com.example.demo.model.Student;
+import com.example.demo.security.JwtAuthenticationFilter;
+import com.example.demo.service.StudentChangeFeed;
+import com.example.demo.service.StudentPayloadCache;
 import com.example.demo.service.StudentService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import io.micrometer.core.instrument.Timer;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/students")
@@ -17,102 +40,289 @@ public class StudentController {
     private StudentService studentService;
     
     @Autowired
-    private MetricsController metricsController;
+    private ObjectMapper objectMapper;
 
+    @Autowired
+    private StudentPayloadCache payloadCache;
+
+    @Autowired
+    private StudentChangeFeed changeFeed;
+
+    // Không truyền cursor/limit/sort: giữ nguyên dạng mảng cũ (giới hạn mặc định), cursor tiếp theo nằm ở header X-Next-Cursor
     @GetMapping
-    public ResponseEntity<List<Student>> getAllStudents() {
-        Timer.Sample sample = metricsController.startTimer();
+    @TimedEndpoint("getAllStudents")
+    public ResponseEntity<?> getAllStudents(@RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String sort,
+                                            WebRequest webRequest) {
+        // ETag của danh sách lấy từ bộ đếm thay đổi của bảng: trả 304 mà không tải entity hay serialize
+        long version = studentService.getCollectionVersion();
+        String etag = collectionEtag(version);
+        if (notModified(webRequest, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
-            metricsController.incrementStudentRequest();   // tăng số lượng  request tổng thể 
-            List<Student> students = studentService.getAllStudents();
-            return ResponseEntity.ok(students);
-        } finally {
-          
-            metricsController.stopTimer(sample, "getAllStudents");
+            SerializedPayload payload;
+            if (cursor == null && limit == null && sort == null) {
+                payload = payloadCache.get(new SimpleKey("legacy", version), () -> {
+                    List<StudentView> students = studentService.getAllStudents(version);
+                    return payloadCache.serialize(students, studentService.nextCursorAfter(students));
+                });
+            } else {
+                payload = payloadCache.get(new SimpleKey("page", cursor, limit, sort, version),
+                        () -> payloadCache.serialize(studentService.getStudentsPage(cursor, limit, sort, version), null));
+            }
+            return payloadResponse(payload, etag, webRequest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Export toàn bộ học viên dạng NDJSON (mặc định) hoặc CSV, ghi trực tiếp ra response theo từng lô
+    // Chỉ đo phần dựng response, phần ghi dữ liệu chạy sau trên luồng async
+    @GetMapping("/export")
+    @TimedEndpoint("exportStudents")
+    public ResponseEntity<StreamingResponseBody> exportStudents(@RequestParam(defaultValue = "ndjson") String format) {
+        MediaType mediaType;
+        if (StudentService.EXPORT_NDJSON.equals(format)) {
+            mediaType = MediaType.APPLICATION_NDJSON;
+        } else if (StudentService.EXPORT_CSV.equals(format)) {
+            mediaType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+        } else {
+            return ResponseEntity.badRequest().build();
         }
+        StreamingResponseBody body = out -> studentService.exportStudents(format, out);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"students." + format + "\"")
+                .body(body);
+    }
+
+    // Luồng thay đổi học viên (Server-Sent Events: created/updated/deleted) thay cho poll danh sách.
+    // Kết nối lại với Last-Event-ID để nhận sự kiện đã lỡ; sự kiện reset nghĩa là cần tải lại danh sách
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @TimedEndpoint("studentChanges")
+    public ResponseEntity<SseEmitter> studentChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestAttribute(value = JwtAuthenticationFilter.CLAIMS_ATTRIBUTE, required = false) Claims claims) {
+        SseEmitter emitter = changeFeed.subscribe(lastEventId, claims);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+        // Proxy nginx (ingress) không gom buffer để sự kiện tới client ngay
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
     }
    
     @GetMapping("/{id}")
-    public ResponseEntity<Student> getStudentById(@PathVariable Long id) {
-        Timer.Sample sample = metricsController.startTimer();
-        try {
-            metricsController.incrementStudentRequest();
-            Optional<Student> student = studentService.getStudentById(id);
-            if (student.isPresent()) {
-                return ResponseEntity.ok(student.get());
+    @TimedEndpoint("getStudentById")
+    public ResponseEntity<StudentView> getStudentById(@PathVariable Long id, WebRequest webRequest) {
+        Optional<StudentView> student = studentService.getStudentById(id);
+        if (student.isPresent()) {
+            String etag = studentEtag(student.get());
+            if (notModified(webRequest, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
             }
-            return ResponseEntity.notFound().build();
-        } finally {
-            metricsController.stopTimer(sample, "getStudentById");
+            return ResponseEntity.ok().eTag(etag).body(student.get());
         }
+        return ResponseEntity.notFound().build();
     }
     
  
     @GetMapping("/search/name")
-    public ResponseEntity<List<Student>> searchByName(@RequestParam String name) {
-        Timer.Sample sample = metricsController.startTimer();
+    @TimedEndpoint("searchByName")
+    public ResponseEntity<byte[]> searchByName(@RequestParam String name,
+                                               @RequestParam(required = false) Integer limit,
+                                               WebRequest webRequest) {
+        long version = studentService.getCollectionVersion();
+        String etag = collectionEtag(version);
+        if (notModified(webRequest, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
-            metricsController.incrementStudentRequest();
-            List<Student> students = studentService.searchByName(name);
-            return ResponseEntity.ok(students);
-        } finally {
-            metricsController.stopTimer(sample, "searchByName");
+            SerializedPayload payload = payloadCache.get(new SimpleKey("searchByName", name, limit, version),
+                    () -> payloadCache.serialize(studentService.searchByName(name, limit, version), null));
+            return payloadResponse(payload, etag, webRequest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
     
     // Tìm kiếm theo trường
     @GetMapping("/search/school")
-    public ResponseEntity<List<Student>> searchBySchool(@RequestParam String school) {
-        Timer.Sample sample = metricsController.startTimer();
+    @TimedEndpoint("searchBySchool")
+    public ResponseEntity<byte[]> searchBySchool(@RequestParam String school,
+                                                 @RequestParam(required = false) Integer limit,
+                                                 WebRequest webRequest) {
+        long version = studentService.getCollectionVersion();
+        String etag = collectionEtag(version);
+        if (notModified(webRequest, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            SerializedPayload payload = payloadCache.get(new SimpleKey("searchBySchool", school, limit, version),
+                    () -> payloadCache.serialize(studentService.searchBySchool(school, limit, version), null));
+            return payloadResponse(payload, etag, webRequest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Tìm kiếm theo cả tên và trường, xếp hạng theo độ khớp
+    @GetMapping("/search")
+    @TimedEndpoint("search")
+    public ResponseEntity<byte[]> search(@RequestParam("q") String query,
+                                         @RequestParam(required = false) Integer limit,
+                                         WebRequest webRequest) {
+        long version = studentService.getCollectionVersion();
+        String etag = collectionEtag(version);
+        if (notModified(webRequest, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
-            metricsController.incrementStudentRequest();
-            List<Student> students = studentService.searchBySchool(school);
-            return ResponseEntity.ok(students);
-        } finally {
-            metricsController.stopTimer(sample, "searchBySchool");
+            SerializedPayload payload = payloadCache.get(new SimpleKey("search", query, limit, version),
+                    () -> payloadCache.serialize(studentService.search(query, limit, version), null));
+            return payloadResponse(payload, etag, webRequest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
     
+    // Gợi ý học viên theo tiền tố (typeahead), trả lời từ chỉ mục trong bộ nhớ
+    @GetMapping("/autocomplete")
+    @TimedEndpoint("autocomplete")
+    public ResponseEntity<List<StudentSuggestion>> autocomplete(@RequestParam("q") String query,
+                                                                @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(studentService.autocomplete(query, limit));
+    }
+    
     // Thêm học viên mới
     @PostMapping
+    @TimedEndpoint("createStudent")
     public ResponseEntity<Student> createStudent(@RequestBody Student student) {
-        Timer.Sample sample = metricsController.startTimer();
-        try {
-            metricsController.incrementStudentRequest();
-            Student savedStudent = studentService.saveStudent(student);
-            return ResponseEntity.ok(savedStudent);
-        } finally {
-            metricsController.stopTimer(sample, "createStudent");
+        Student savedStudent = studentService.saveStudent(student);
+        return ResponseEntity.ok().eTag(studentEtag(savedStudent)).body(savedStudent);
+    }
+    
+    // Thêm/cập nhật hàng loạt: body là mảng JSON hoặc NDJSON, được đọc dạng stream
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @TimedEndpoint("bulkUpsertStudents")
+    public ResponseEntity<?> bulkUpsertStudents(InputStream body) {
+        try (MappingIterator<Student> students = objectMapper.readerFor(Student.class).readValues(body)) {
+            BulkStudentResponse result = studentService.bulkUpsert(students);
+            return ResponseEntity.ok(result);
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body("Dữ liệu không hợp lệ: " + e.getMessage());
         }
     }
     
-    // Cập nhật học viên
+    // Cập nhật học viên; có If-Match thì chỉ cập nhật khi ETag còn khớp, không khớp trả 412
     @PutMapping("/{id}")
-    public ResponseEntity<Student> updateStudent(@PathVariable Long id, @RequestBody Student studentDetails) {
-        Timer.Sample sample = metricsController.startTimer();
+    @TimedEndpoint("updateStudent")
+    public ResponseEntity<Student> updateStudent(@PathVariable Long id, @RequestBody Student studentDetails,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            metricsController.incrementStudentRequest();
-            Student updatedStudent = studentService.updateStudent(id, studentDetails);
-            return ResponseEntity.ok(updatedStudent);
+            Student updatedStudent = studentService.updateStudent(id, studentDetails, expectedVersions(id, ifMatch));
+            return ResponseEntity.ok().eTag(studentEtag(updatedStudent)).body(updatedStudent);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
-        } finally {
-            metricsController.stopTimer(sample, "updateStudent");
         }
     }
     
     // Xóa học viên
     @DeleteMapping("/{id}")
+    @TimedEndpoint("deleteStudent")
     public ResponseEntity<String> deleteStudent(@PathVariable Long id) {
-        Timer.Sample sample = metricsController.startTimer();
-        try {
-            metricsController.incrementStudentRequest();
-            if (studentService.deleteStudent(id)) {
-                return ResponseEntity.ok("Xóa học viên thành công");
+        if (studentService.deleteStudent(id)) {
+            return ResponseEntity.ok("Xóa học viên thành công");
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    // Ghi byte đã cache, không chạy Jackson. Bản gzip dùng ETag yếu vì khác byte với bản gốc;
+    // Content-Encoding đã có nên Tomcat không nén lại
+    private static ResponseEntity<byte[]> payloadResponse(SerializedPayload payload, String etag, WebRequest webRequest) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (payload.getNextCursor() != null) {
+            response.header("X-Next-Cursor", payload.getNextCursor());
+        }
+        if (payload.getGzip() != null && acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return response.eTag("W/" + etag).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.getGzip());
+        }
+        return response.eTag(etag).body(payload.getJson());
+    }
+
+    // So sánh yếu theo If-None-Match: ETag W/ của bản gzip khớp với ETag gốc.
+    // Không dùng WebRequest.checkNotModified vì nó tự ghi header ETag, trùng với ETag của ResponseEntity
+    private static boolean notModified(WebRequest webRequest, String etag) {
+        String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                // gzip;q=0 nghĩa là client từ chối
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static String studentEtag(Student student) {
+        return studentEtag(student.getId(), student.getVersion());
+    }
+
+    private static String studentEtag(StudentView student) {
+        return studentEtag(student.id(), student.version());
+    }
+
+    private static String studentEtag(Long id, long version) {
+        return "\"student-" + id + "-" + version + "\"";
+    }
+
+    private static String collectionEtag(long version) {
+        return "\"students-" + version + "\"";
+    }
+
+    // Lấy các version từ If-Match (so sánh mạnh: bỏ qua ETag yếu W/). null = không có điều kiện hoặc "*".
+    // ETag không phải của học viên này cho ra tập rỗng, nghĩa là không version nào khớp
+    private static Set<Long> expectedVersions(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = "\"student-" + id + "-";
+        Set<Long> versions = new HashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith(prefix) && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(prefix.length(), tag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // bỏ qua ETag không hợp lệ
+                }
             }
-            return ResponseEntity.notFound().build();
-        } finally {
-            metricsController.stopTimer(sample, "deleteStudent");
         }
+        return versions;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Transaction read-only đọc từ replica, mọi thứ khác dùng primary. Phải được bọc trong
+// LazyConnectionDataSourceProxy: connection chỉ được lấy ở câu lệnh đầu tiên, lúc cờ read-only của
+// transaction đã được đặt. Request đã mở transaction ghi thì các lần đọc sau trong cùng request
+// cũng dùng primary để thấy dữ liệu vừa ghi (replica có thể trễ); ngay sau khi cache bị xóa (ReplicaLagWindow)
+// mọi transaction read-only cũng dùng primary.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    static final String PRIMARY_PINNED_ATTRIBUTE = ReadWriteRoutingDataSource.class.getName() + ".PRIMARY_PINNED";
+
+    private final ReplicaLagWindow lagWindow;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replicas, ReplicaLagWindow lagWindow) {
+        this.lagWindow = lagWindow;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replicas));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Target.PRIMARY;
+        }
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (request != null) {
+                request.setAttribute(PRIMARY_PINNED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+            }
+            return Target.PRIMARY;
+        }
+        if (request != null && request.getAttribute(PRIMARY_PINNED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            return Target.PRIMARY;
+        }
+        if (lagWindow.isOpen()) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.demo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Connection cho transaction read-only, lấy từ một trong các pool replica (round-robin hoặc pool đang bận ít nhất).
+// Replica không kết nối được bị bỏ qua trong failure-cooldown rồi mới được thử lại (pool chỉ bận thì không);
+// khi không còn replica nào dùng được thì đọc từ primary.
+public class ReplicaDataSource extends AbstractDataSource implements MeterBinder, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    public enum Strategy {
+        ROUND_ROBIN,
+        // Ít connection đang dùng + đang chờ nhất, bằng nhau thì theo thứ tự round-robin
+        LEAST_LOADED
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final long failureCooldownNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ReplicaDataSource(DataSource primary, List<HikariDataSource> pools, Strategy strategy,
+                             Duration failureCooldown) {
+        this.primary = primary;
+        this.replicas = pools.stream().map(Replica::new).toList();
+        this.strategy = strategy;
+        this.failureCooldownNanos = failureCooldown.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        for (Replica replica : candidates()) {
+            try {
+                Connection connection = replica.pool.getConnection();
+                replica.markUp();
+                return connection;
+            } catch (SQLException e) {
+                if (isConnectionFailure(e)) {
+                    replica.markDown(failureCooldownNanos, e);
+                } else {
+                    // Pool chỉ đang bận (hết connection-timeout): thử replica kế tiếp, không đưa vào cooldown
+                    log.debug("Replica {} is busy: {}", replica.pool.getPoolName(), e.getMessage());
+                }
+            }
+        }
+        fallbacks.increment();
+        return primary.getConnection();
+    }
+
+    // Hikari gắn lỗi tạo connection gần nhất làm cause (kèm SQLState của nó, ví dụ 08001);
+    // SQLTransientConnectionException do pool hết connection thì không có cause lẫn SQLState
+    private static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return (state != null && state.startsWith("08")) || e.getCause() != null;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica pools use the configured credentials");
+    }
+
+    // Replica còn dùng được, bắt đầu từ vị trí round-robin kế tiếp
+    private List<Replica> candidates() {
+        int size = replicas.size();
+        if (size == 0) {
+            return List.of();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        long now = System.nanoTime();
+        List<Replica> candidates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isAvailable(now)) {
+                candidates.add(replica);
+            }
+        }
+        if (strategy == Strategy.LEAST_LOADED && candidates.size() > 1) {
+            Replica least = Collections.min(candidates, Comparator.comparingInt(Replica::load));
+            candidates.remove(least);
+            candidates.add(0, least);
+        }
+        return candidates;
+    }
+
+    public int getAvailableReplicas() {
+        long now = System.nanoTime();
+        return (int) replicas.stream().filter(replica -> replica.isAvailable(now)).count();
+    }
+
+    // Số connection read-only phải lấy từ primary vì không có replica nào dùng được
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("datasource_replicas_available", this, ReplicaDataSource::getAvailableReplicas)
+                .description("Read replicas currently accepting connections")
+                .register(registry);
+        Gauge.builder("datasource_replicas_configured", replicas, List::size)
+                .description("Configured read replicas")
+                .register(registry);
+        FunctionCounter.builder("datasource_replica_fallback_total", this, ReplicaDataSource::getFallbackCount)
+                .description("Read-only connections served by the primary because no replica was available")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource pool;
+        private volatile boolean down;
+        private volatile long downUntil;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        private boolean isAvailable(long now) {
+            return !down || now - downUntil >= 0;
+        }
+
+        private int load() {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            return bean == null ? 0 : bean.getActiveConnections() + bean.getThreadsAwaitingConnection();
+        }
+
+        private void markDown(long cooldownNanos, SQLException e) {
+            if (!down) {
+                log.warn("Replica {} is unavailable, reading from other replicas or the primary: {}",
+                        pool.getPoolName(), e.getMessage());
+            }
+            downUntil = System.nanoTime() + cooldownNanos;
+            down = true;
+        }
+
+        private void markUp() {
+            if (down) {
+                down = false;
+                log.info("Replica {} is available again", pool.getPoolName());
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Khoảng thời gian sau khi cache học viên/principal bị xóa (pod này ghi, hoặc thông báo từ pod khác) mà replica
+// có thể chưa có thay đổi. Trong khoảng này transaction read-only đọc từ primary: lần tải lại cache ngay sau khi
+// xóa không lấy bản cũ từ replica rồi giữ nó (và ETag của nó) suốt TTL của cache
+@Component
+public class ReplicaLagWindow {
+
+    @Value("${datasource.routing.replica-lag:5s}")
+    private Duration replicaLag;
+
+    private volatile long openUntil = System.nanoTime();
+
+    // Gọi trước khi xóa cache
+    public void open() {
+        openUntil = System.nanoTime() + replicaLag.toNanos();
+    }
+
+    public boolean isOpen() {
+        return System.nanoTime() - openUntil < 0;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkStudentResponse {
+    private int created;
+    private int updated;
+    private int failed;
+    private List<BulkStudentResult> results = new ArrayList<>();
+    // Lỗi đọc body làm dừng giữa chừng; results chỉ gồm các bản ghi trước đó
+    private String error;
+
+    public void add(BulkStudentResult result) {
+        switch (result.getStatus()) {
+            case BulkStudentResult.CREATED -> created++;
+            case BulkStudentResult.UPDATED -> updated++;
+            default -> failed++;
+        }
+        results.add(result);
+    }
+}
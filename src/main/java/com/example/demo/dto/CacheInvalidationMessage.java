@@ -0,0 +1,9 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import java.util.Map;
+
+// Payload của NOTIFY trên kênh cache.invalidation.channel. students: id -> created/updated/deleted (StudentChangeEvent).
+// changedAt: thời điểm thay đổi đầu tiên trong lô trên pod gửi, dùng để đo độ trễ tới lúc pod nhận xử lý xong
+public record CacheInvalidationMessage(String origin, long changedAt, Map<Long, String> students, List<String> users) {
+}
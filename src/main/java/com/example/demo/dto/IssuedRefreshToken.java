@@ -0,0 +1,5 @@
+package com.example.demo.dto;
+
+// Refresh token mới (giá trị gốc chỉ trả cho client một lần) cùng user và phiên của nó
+public record IssuedRefreshToken(String token, String username, String familyId) {
+}
@@ -10,12 +10,18 @@ import java.util.List;
 public class LoginResponse {
     private String token;
     private String type = "Bearer";
+    // Số giây access token còn hiệu lực
+    private long expiresIn;
+    // Dùng một lần với POST /api/auth/refresh, response trả về refresh token mới
+    private String refreshToken;
     private String username;
     private List<String> roles;
     
-    public LoginResponse(String token, String username, List<String> roles) {
+    public LoginResponse(String token, long expiresIn, String refreshToken, String username, List<String> roles) {
         this.token = token;
+        this.expiresIn = expiresIn;
+        this.refreshToken = refreshToken;
         this.username = username;
         this.roles = roles;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Body JSON đã serialize sẵn (và bản gzip nếu đủ lớn), ghi thẳng ra response khi đọc lặp lại
+@Data
+@AllArgsConstructor
+public class SerializedPayload {
+    private byte[] json;
+    // null nếu body nhỏ hơn ngưỡng nén
+    private byte[] gzip;
+    // Header X-Next-Cursor của danh sách tương thích, null nếu không có
+    private String nextCursor;
+}
@@ -0,0 +1,9 @@
+package com.example.demo.dto;
+
+// Một thay đổi trên bảng students gửi qua GET /api/students/changes. student là null khi type = deleted
+public record StudentChangeEvent(String type, Long id, StudentView student) {
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+}
@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// Projection chỉ đọc dùng khi export, không phải entity nên không nằm trong persistence context
+@Data
+@AllArgsConstructor
+public class StudentExportRow {
+    private Long id;
+    private String fullName;
+    private LocalDate birthDate;
+    private String schoolCategory;
+}
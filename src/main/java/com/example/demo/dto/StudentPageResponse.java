@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class StudentPageResponse {
+    private List<StudentView> items;
+    // Cursor mờ (opaque) để lấy trang tiếp theo, null nếu đã hết dữ liệu
+    private String nextCursor;
+    private int limit;
+}
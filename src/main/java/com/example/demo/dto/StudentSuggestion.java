@@ -0,0 +1,12 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class StudentSuggestion {
+    private Long id;
+    private String fullName;
+    private String schoolCategory;
+}
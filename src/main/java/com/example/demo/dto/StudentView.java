@@ -0,0 +1,8 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+// Projection chỉ đọc cho danh sách/tìm kiếm/chi tiết: không phải entity nên không có snapshot dirty-checking
+// hay mục trong persistence context. JSON giống hệt Student.
+public record StudentView(Long id, String fullName, LocalDate birthDate, String schoolCategory, long version) {
+}
@@ -0,0 +1,99 @@
+package com.example.demo.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Giới hạn số request xử lý đồng thời trước khi chạm tới pool Hikari.
+// Với virtual thread, Tomcat nhận mọi kết nối nên không còn 200 thread làm giới hạn tự nhiên:
+// phần dư xếp hàng (FIFO) ở đây tối đa acquire-timeout-ms rồi trả 503 thay vì dồn vào Hikari.
+@Component
+@Order(2)
+public class BulkheadFilter implements Filter {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${bulkhead.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bulkhead.max-concurrent:50}")
+    private int maxConcurrent;
+
+    @Value("${bulkhead.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
+
+    private Semaphore permits;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent, true);
+        Gauge.builder("bulkhead_active_requests", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Requests currently holding a bulkhead permit")
+                .register(meterRegistry);
+        Gauge.builder("bulkhead_queued_requests", permits, Semaphore::getQueueLength)
+                .description("Requests waiting for a bulkhead permit")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("bulkhead_rejected_total")
+                .description("Requests rejected with 503 after waiting for a bulkhead permit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        if (!enabled || httpRequest.getRequestURI().startsWith("/actuator")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (!acquire()) {
+            rejectedCounter.increment();
+            httpResponse.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            httpResponse.setHeader("Retry-After", "1");
+            httpResponse.setContentType("application/json");
+            httpResponse.setCharacterEncoding("UTF-8");
+            httpResponse.getWriter().write(
+                "{\"error\": \"Service busy\", " +
+                "\"message\": \"Too many concurrent requests, retry later\", " +
+                "\"code\": 503}");
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean acquire() {
+        try {
+            return permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.filter;
+
+import com.example.demo.config.RateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bucket dùng chung giữa các pod trong bảng rate_limit_buckets (một dòng mỗi khóa, GCRA theo epoch nano giây).
+// Dòng được cập nhật bằng compare-and-swap trên cột version, không giữ khóa DB.
+// Mỗi lần chạm DB lấy trước một lease gồm nhiều token rồi tiêu dần trong bộ nhớ; token chưa dùng
+// hết hạn sau lease.ttl (mất đi chứ không trả lại), nên giới hạn chung chỉ có thể chặt hơn, không lỏng hơn.
+// Lần từ chối cũng được nhớ tới khi có token mới để request bị chặn không đổ vào DB.
+public class JdbcRateLimitBackend implements RateLimitBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcRateLimitBackend.class);
+
+    private static final int MAX_CAS_ATTEMPTS = 10;
+    private static final long CLEANUP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int leaseSize;
+    private final long leaseTtlNanos;
+    private final Cache<String, TokenLease> leases;
+    // DB lỗi thì vẫn giới hạn theo từng pod thay vì chặn hết hoặc bỏ giới hạn
+    private final RateLimitBucketStore fallback;
+    private final AtomicLong lastCleanup = new AtomicLong(System.nanoTime());
+
+    public JdbcRateLimitBackend(JdbcTemplate jdbcTemplate, long maxKeys, Duration expireAfterAccess,
+                                int leaseSize, Duration leaseTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.leaseSize = leaseSize;
+        this.leaseTtlNanos = leaseTtl.toNanos();
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(leaseTtl)
+                .build();
+        this.fallback = new RateLimitBucketStore(maxKeys, expireAfterAccess);
+    }
+
+    @Override
+    public long tryConsume(String key, RateLimitProperties.Limit limit) {
+        long now = System.nanoTime();
+        TokenLease lease = leases.getIfPresent(key);
+        if (lease != null && now < lease.expiresAt) {
+            if (lease.remaining.getAndDecrement() > 0) {
+                return 0;
+            }
+            if (lease.retryAt > now) {
+                return lease.retryAt - now;
+            }
+        }
+
+        try {
+            lease = acquire(key, limit, now);
+        } catch (DataAccessException e) {
+            logger.warn("Rate limit store unavailable, falling back to local buckets: {}", e.getMessage());
+            return fallback.tryConsume(key, limit, now);
+        }
+        leases.put(key, lease);
+        if (lease.remaining.getAndDecrement() > 0) {
+            return 0;
+        }
+        return lease.retryAt - now;
+    }
+
+    // Lấy tối đa leaseTokens(limit) token từ dòng của khóa, hoặc một lease "từ chối" nếu bucket đã cạn
+    private TokenLease acquire(String key, RateLimitProperties.Limit limit, long now) {
+        long period = limit.getPeriod().toNanos();
+        long interval = period / limit.getCapacity();
+        int wanted = leaseTokens(limit);
+        cleanUpIfDue(now);
+
+        for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+            long wallNow = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+            List<long[]> rows = jdbcTemplate.query(
+                    "SELECT full_at, version FROM rate_limit_buckets WHERE bucket_key = ?",
+                    (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2)}, key);
+            long fullAt = rows.isEmpty() ? Long.MIN_VALUE : rows.get(0)[0];
+            long base = Math.max(fullAt, wallNow);
+            long available = (wallNow + period - base) / interval;
+            if (available <= 0) {
+                long wait = base + interval - period - wallNow;
+                return new TokenLease(0, now + Math.min(wait, leaseTtlNanos), now + wait);
+            }
+            int granted = (int) Math.min(available, wanted);
+            long newFullAt = base + granted * interval;
+
+            if (rows.isEmpty()) {
+                try {
+                    jdbcTemplate.update("INSERT INTO rate_limit_buckets (bucket_key, full_at, version) VALUES (?, ?, 0)",
+                            key, newFullAt);
+                    return new TokenLease(granted, now + leaseTtlNanos, 0);
+                } catch (DuplicateKeyException e) {
+                    // Pod khác vừa tạo dòng, đọc lại
+                    continue;
+                }
+            }
+            int updated = jdbcTemplate.update(
+                    "UPDATE rate_limit_buckets SET full_at = ?, version = version + 1 WHERE bucket_key = ? AND version = ?",
+                    newFullAt, key, rows.get(0)[1]);
+            if (updated == 1) {
+                return new TokenLease(granted, now + leaseTtlNanos, 0);
+            }
+        }
+        // Tranh chấp liên tục trên cùng một khóa: coi như hết token trong một khoảng interval
+        return new TokenLease(0, now + Math.min(interval, leaseTtlNanos), now + interval);
+    }
+
+    // Giới hạn nhỏ (vd. 10/phút) lấy từng token một để giữ đúng giới hạn chung
+    private int leaseTokens(RateLimitProperties.Limit limit) {
+        return Math.max(1, Math.min(leaseSize, limit.getCapacity() / 10));
+    }
+
+    // Dòng có full_at trong quá khứ tương đương bucket đầy, xóa được mà không đổi kết quả
+    private void cleanUpIfDue(long now) {
+        long last = lastCleanup.get();
+        if (now - last < CLEANUP_INTERVAL_NANOS || !lastCleanup.compareAndSet(last, now)) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM rate_limit_buckets WHERE full_at < ?",
+                TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()));
+    }
+
+    @Override
+    public long size() {
+        return leases.estimatedSize();
+    }
+
+    private static final class TokenLease {
+        private final AtomicInteger remaining;
+        private final long expiresAt;
+        private final long retryAt;
+
+        private TokenLease(int tokens, long expiresAt, long retryAt) {
+            this.remaining = new AtomicInteger(tokens);
+            this.expiresAt = expiresAt;
+            this.retryAt = retryAt;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.filter;
+
+import com.example.demo.config.RateLimitProperties;
+
+// Nơi lưu bucket cho SimpleRateLimitFilter: trong bộ nhớ (RateLimitBucketStore) hoặc dùng chung (JdbcRateLimitBackend)
+public interface RateLimitBackend {
+
+    // Trả về 0 nếu còn token, ngược lại số nano giây cần chờ tới khi có token tiếp theo
+    long tryConsume(String key, RateLimitProperties.Limit limit);
+
+    // Số bucket/lease đang giữ trong bộ nhớ của pod này
+    long size();
+}
@@ -0,0 +1,58 @@
+package com.example.demo.filter;
+
+import com.example.demo.config.RateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bucket theo khóa (route + IP/username) với số khóa bị giới hạn.
+// Mỗi bucket chỉ là một AtomicLong theo GCRA: thời điểm (nanoTime) mà bucket sẽ đầy trở lại.
+// Khóa đã có thì đọc không khóa (Caffeine getIfPresent) và cập nhật bằng CAS.
+public class RateLimitBucketStore implements RateLimitBackend {
+
+    private final Cache<String, AtomicLong> buckets;
+
+    public RateLimitBucketStore(long maxKeys, Duration expireAfterAccess) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+
+    @Override
+    public long tryConsume(String key, RateLimitProperties.Limit limit) {
+        return tryConsume(key, limit, System.nanoTime());
+    }
+
+    public long tryConsume(String key, RateLimitProperties.Limit limit, long now) {
+        AtomicLong bucket = buckets.getIfPresent(key);
+        if (bucket == null) {
+            bucket = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        }
+        long period = limit.getPeriod().toNanos();
+        long interval = period / limit.getCapacity();
+        long tolerance = period - interval;
+        while (true) {
+            long fullAt = bucket.get();
+            long base = Math.max(fullAt, now);
+            long wait = base - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, base + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        return buckets.estimatedSize();
+    }
+
+    void cleanUp() {
+        buckets.cleanUp();
+    }
+}
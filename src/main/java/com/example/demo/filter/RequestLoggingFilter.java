@@ -1,30 +1,86 @@
 package com.example.demo.filter;
 
+import com.example.demo.metrics.RequestTimings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
-import java.util.UUID;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+import static net.logstash.logback.argument.StructuredArguments.value;
+
+// Chạy ngoài cùng để thời gian và Server-Timing bao cả Spring Security, rate limit và bulkhead
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class RequestLoggingFilter extends OncePerRequestFilter {
     
     private static final Logger logger = LoggerFactory.getLogger("HTTP_REQUEST");
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Tỉ lệ ghi log request thành công, lỗi và request chậm luôn được ghi
+    @Value("${logging.request.success-sample-rate:1.0}")
+    private double successSampleRate;
+
+    @Value("${logging.request.slow-threshold-ms:1000}")
+    private long slowThresholdMs;
+
+    // Header Server-Timing lộ thời gian từng giai đoạn cho client, tắt được khi không muốn công khai
+    @Value("${logging.request.server-timing-header:true}")
+    private boolean serverTimingHeader;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // Timer theo giai đoạn được tạo sẵn, mỗi request chỉ record vào mảng theo ordinal
+    private Timer[] phaseTimers;
+
+    @PostConstruct
+    public void init() {
+        if (meterRegistry == null) {
+            return;
+        }
+        RequestTimings.Phase[] phases = RequestTimings.Phase.values();
+        phaseTimers = new Timer[phases.length];
+        for (RequestTimings.Phase phase : phases) {
+            phaseTimers[phase.ordinal()] = Timer.builder("http_server_phase_duration")
+                    .description("Time spent in each phase of request handling")
+                    .tag("phase", phase.metricName())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry);
+        }
+    }
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                   HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         
-        long startTime = System.currentTimeMillis();
-        String requestId = UUID.randomUUID().toString().substring(0, 8);
+        RequestTimings timings = RequestTimings.begin();
+        String requestId = newRequestId();
         
       
         MDC.put("requestId", requestId);
@@ -32,23 +88,65 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
         MDC.put("path", request.getRequestURI());
         
         try {
-            filterChain.doFilter(request, response);
+            filterChain.doFilter(request, serverTimingHeader ? new ServerTimingResponse(response, timings) : response);
         } finally {
-            long duration = System.currentTimeMillis() - startTime;
+            long durationNanos = timings.elapsedNanos();
+            int status = response.getStatus();
+            // Response không ghi body (204, 304, ...) thì header được thêm ở đây
+            if (serverTimingHeader && !response.isCommitted() && timings.markHeaderWritten()) {
+                response.setHeader(SERVER_TIMING_HEADER, timings.serverTimingHeader());
+            }
+            recordPhases(timings);
             
-          
-            logger.info("HTTP Request - Method: {}, Path: {}, Status: {}, Duration: {}ms, RequestId: {}", 
-                request.getMethod(),
-                request.getRequestURI(),
-                response.getStatus(),
-                duration,
-                requestId
-            );
+            // Thay cho access log của Tomcat: các trường của access log nằm luôn trong dòng JSON này
+            if (shouldLog(status, durationNanos)) {
+                logger.info("HTTP Request - Method: {}, Path: {}, Status: {}, Duration: {}ms, RequestId: {}, Client: {}, Protocol: {}, Phases: {}",
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    value("status", status),
+                    value("durationMs", durationNanos / 1_000_000.0),
+                    requestId,
+                    value("remoteAddr", request.getRemoteAddr()),
+                    value("protocol", request.getProtocol()),
+                    value("phasesMs", timings.toMillisMap())
+                );
+            }
             
           
+            RequestTimings.end();
             MDC.clear();
         }
     }
+
+    private void recordPhases(RequestTimings timings) {
+        if (phaseTimers == null) {
+            return;
+        }
+        for (RequestTimings.Phase phase : RequestTimings.Phase.values()) {
+            long nanos = timings.nanos(phase);
+            if (nanos > 0) {
+                phaseTimers[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private boolean shouldLog(int status, long durationNanos) {
+        if (status >= 400 || durationNanos >= TimeUnit.MILLISECONDS.toNanos(slowThresholdMs) || successSampleRate >= 1.0) {
+            return true;
+        }
+        return ThreadLocalRandom.current().nextDouble() < successSampleRate;
+    }
+
+    // 8 ký tự hex như trước (UUID cắt ngắn) nhưng lấy từ ThreadLocalRandom thay vì SecureRandom
+    static String newRequestId() {
+        int bits = ThreadLocalRandom.current().nextInt();
+        char[] chars = new char[8];
+        for (int i = chars.length - 1; i >= 0; i--) {
+            chars[i] = HEX[bits & 0xF];
+            bits >>>= 4;
+        }
+        return new String(chars);
+    }
     
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
@@ -58,4 +156,58 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
                path.equals("/health") || 
                path.equals("/favicon.ico");
     }
-}
\ No newline at end of file
+
+    // Thêm Server-Timing ngay trước khi body hoặc lỗi được ghi, lúc header vẫn còn sửa được.
+    // Header chứa các giai đoạn tới thời điểm đó; thời gian serialize chỉ có trong log và metrics.
+    private static final class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTimings timings;
+
+        ServerTimingResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        private void addHeader() {
+            if (!isCommitted() && timings.markHeaderWritten()) {
+                setHeader(SERVER_TIMING_HEADER, timings.serverTimingHeader());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
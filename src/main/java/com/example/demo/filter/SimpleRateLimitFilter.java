@@ -1,11 +1,18 @@
 package com.example.demo.filter;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Bucket4j;
-import io.github.bucket4j.Refill;
+import com.example.demo.config.RateLimitProperties;
+import com.example.demo.metrics.RequestTimings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -16,14 +23,43 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.time.Duration;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @Order(1)
 public class SimpleRateLimitFilter implements Filter {
-    
-    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
-    
+
+    private static final String DEFAULT_ROUTE = "default";
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RateLimitBackend backend;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<Rule> rules = new ArrayList<>();
+    private Rule defaultRule;
+
+    @PostConstruct
+    public void init() {
+        for (RateLimitProperties.Route route : properties.getRoutes()) {
+            rules.add(new Rule(route.getPattern(),
+                    route.getAnonymous() != null ? route.getAnonymous() : properties.getAnonymous(),
+                    route.getAuthenticated()));
+        }
+        defaultRule = new Rule(DEFAULT_ROUTE, properties.getAnonymous(), null);
+
+        Gauge.builder("rate_limit_active_buckets", backend, RateLimitBackend::size)
+                .description("Rate limit buckets currently held in memory")
+                .register(meterRegistry);
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
@@ -32,47 +68,116 @@ public class SimpleRateLimitFilter implements Filter {
         HttpServletResponse httpResponse = (HttpServletResponse) response;
         
         
-        if (httpRequest.getRequestURI().startsWith("/actuator")) {
+        if (!properties.isEnabled() || httpRequest.getRequestURI().startsWith("/actuator")) {
             chain.doFilter(request, response);
             return;
         }
         
-        String clientIP = getClientIP(httpRequest);
-        Bucket bucket = getBucket(clientIP);
-        
-        if (bucket.tryConsume(1)) {
+        Rule rule = ruleFor(httpRequest.getRequestURI());
+        String username = authenticatedUsername();
+        RateLimitProperties.Limit limit;
+        String key;
+        Counter rejectedCounter;
+        if (username != null) {
+            limit = limitForPrincipal(rule, username);
+            key = rule.name + "|u:" + username;
+            rejectedCounter = rule.authenticatedRejected;
+        } else {
+            limit = rule.anonymous;
+            // IP lấy từ kết nối; X-Forwarded-For chỉ được tin khi đi qua proxy tin cậy (server.forward-headers-strategy)
+            key = rule.name + "|ip:" + httpRequest.getRemoteAddr();
+            rejectedCounter = rule.anonymousRejected;
+        }
+
+        RequestTimings.start(RequestTimings.Phase.RATE_LIMIT);
+        long wait;
+        try {
+            wait = backend.tryConsume(key, limit);
+        } finally {
+            RequestTimings.stop(RequestTimings.Phase.RATE_LIMIT);
+        }
+        if (wait == 0) {
         
             chain.doFilter(request, response);
         } else {
         
+            rejectedCounter.increment();
             httpResponse.setStatus(409);
+            httpResponse.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait))));
             httpResponse.setContentType("application/json");
             httpResponse.setCharacterEncoding("UTF-8");
             
             String jsonResponse = 
                 "{\"error\": \"Rate limit exceeded\", " +
-                "\"message\": \"Too many requests - limit: 10 requests per minute\", " +
+                "\"message\": \"Too many requests - limit: " + limit.getCapacity() + " requests per " +
+                describe(limit.getPeriod()) + "\", " +
                 "\"code\": 409}";
             
             httpResponse.getWriter().write(jsonResponse);
         }
     }
-    
-    private Bucket getBucket(String clientIP) {
-        return buckets.computeIfAbsent(clientIP, this::createBucket);
+
+    private Rule ruleFor(String path) {
+        for (Rule rule : rules) {
+            if (pathMatcher.match(rule.name, path)) {
+                return rule;
+            }
+        }
+        return defaultRule;
+    }
+
+    private RateLimitProperties.Limit limitForPrincipal(Rule rule, String username) {
+        RateLimitProperties.Limit limit = properties.getPrincipals().get(username);
+        if (limit != null) {
+            return limit;
+        }
+        return rule.authenticated != null ? rule.authenticated : properties.getAuthenticated();
+    }
+
+    // Filter chạy sau Spring Security nên principal của JWT đã có trong SecurityContext
+    private String authenticatedUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
     }
-    
-    private Bucket createBucket(String key) {
-        
-        Bandwidth bandwidth = Bandwidth.classic(10, Refill.intervally(10, Duration.ofMinutes(1)));
-        return Bucket4j.builder().addLimit(bandwidth).build();
+
+    private static String describe(Duration period) {
+        if (period.equals(Duration.ofSeconds(1))) {
+            return "second";
+        }
+        if (period.equals(Duration.ofMinutes(1))) {
+            return "minute";
+        }
+        if (period.equals(Duration.ofHours(1))) {
+            return "hour";
+        }
+        return period.toSeconds() + " seconds";
     }
-    
-    private String getClientIP(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
+
+    private final class Rule {
+        private final String name;
+        private final RateLimitProperties.Limit anonymous;
+        private final RateLimitProperties.Limit authenticated;
+        private final Counter anonymousRejected;
+        private final Counter authenticatedRejected;
+
+        private Rule(String name, RateLimitProperties.Limit anonymous, RateLimitProperties.Limit authenticated) {
+            this.name = name;
+            this.anonymous = anonymous;
+            this.authenticated = authenticated;
+            this.anonymousRejected = rejectedCounter(name, "anonymous");
+            this.authenticatedRejected = rejectedCounter(name, "authenticated");
         }
-        return request.getRemoteAddr();
     }
-}
\ No newline at end of file
+
+    private Counter rejectedCounter(String route, String client) {
+        return Counter.builder("rate_limit_rejected_total")
+                .description("Requests rejected by the rate limiter")
+                .tag("route", route)
+                .tag("client", client)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Xuất logging_async_dropped_total và logging_async_queue_depth cho mọi MeteredAsyncAppender trong logback
+@Component
+public class LoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Map.Entry<String, MeteredAsyncAppender> entry : asyncAppenders().entrySet()) {
+            MeteredAsyncAppender appender = entry.getValue();
+            FunctionCounter.builder("logging_async_dropped_total", appender, MeteredAsyncAppender::getDroppedCount)
+                    .description("Log events dropped because the async ring buffer was full")
+                    .tag("appender", entry.getKey())
+                    .register(registry);
+            Gauge.builder("logging_async_queue_depth", appender, MeteredAsyncAppender::getQueueDepth)
+                    .description("Log events waiting in the async ring buffer")
+                    .tag("appender", entry.getKey())
+                    .register(registry);
+            Gauge.builder("logging_async_ring_buffer_size", appender, MeteredAsyncAppender::getRingBufferSize)
+                    .description("Capacity of the async ring buffer")
+                    .tag("appender", entry.getKey())
+                    .register(registry);
+        }
+    }
+
+    private static Map<String, MeteredAsyncAppender> asyncAppenders() {
+        Map<String, MeteredAsyncAppender> appenders = new LinkedHashMap<>();
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return appenders;
+        }
+        for (Logger logger : context.getLoggerList()) {
+            Iterator<Appender<ILoggingEvent>> iterator = logger.iteratorForAppenders();
+            while (iterator.hasNext()) {
+                if (iterator.next() instanceof MeteredAsyncAppender appender) {
+                    appenders.putIfAbsent(appender.getName(), appender);
+                }
+            }
+        }
+        return appenders;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import net.logstash.logback.appender.LoggingEventAsyncDisruptorAppender;
+import net.logstash.logback.appender.listener.AppenderListener;
+import net.logstash.logback.encoder.com.lmax.disruptor.EventHandler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Appender bất đồng bộ trên ring buffer (LMAX Disruptor) của logstash-logback-encoder, có đếm sự kiện
+// để xuất metrics (xem LoggingMetrics). Khi ring buffer đầy, appendTimeout quyết định:
+// 0 = bỏ sự kiện ngay, > 0 = chờ tối đa chừng đó rồi bỏ, -1 = chặn luồng gọi tới khi có chỗ (backpressure).
+public class MeteredAsyncAppender extends LoggingEventAsyncDisruptorAppender {
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public MeteredAsyncAppender() {
+        addListener(new AppenderListener<>() {
+            @Override
+            public void eventAppended(Appender<ILoggingEvent> appender, ILoggingEvent event, long durationInNanos) {
+                enqueued.increment();
+            }
+
+            @Override
+            public void eventAppendFailed(Appender<ILoggingEvent> appender, ILoggingEvent event, Throwable reason) {
+                dropped.increment();
+            }
+        });
+    }
+
+    @Override
+    protected EventHandler<LogEvent<ILoggingEvent>> createEventHandler() {
+        EventHandler<LogEvent<ILoggingEvent>> delegate = super.createEventHandler();
+        return (event, sequence, endOfBatch) -> {
+            try {
+                delegate.onEvent(event, sequence, endOfBatch);
+            } finally {
+                written.increment();
+            }
+        };
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    // Số sự kiện đã vào ring buffer nhưng chưa được ghi ra appender bên dưới
+    public long getQueueDepth() {
+        return Math.max(0, enqueued.sum() - written.sum());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+// Meter của một endpoint, resolve sẵn để record() không tra registry và không cấp phát.
+// Timer theo từng mã HTTP được tạo lần đầu gặp mã đó rồi giữ trong mảng; hai thread cùng tạo
+// thì registry trả về cùng một Timer nên ghi đè không sao.
+public class EndpointMeters {
+
+    private final Counter requests;
+    private final IntFunction<Timer> timerFactory;
+    private final Timer[] timersByStatus = new Timer[600];
+
+    public EndpointMeters(Counter requests, IntFunction<Timer> timerFactory) {
+        this.requests = requests;
+        this.timerFactory = timerFactory;
+    }
+
+    public void record(int status, long durationNanos) {
+        requests.increment();
+        timer(status).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer timer(int status) {
+        if (status < 100 || status >= timersByStatus.length) {
+            status = 500;
+        }
+        Timer timer = timersByStatus[status];
+        if (timer == null) {
+            timer = timerFactory.apply(status);
+            timersByStatus[status] = timer;
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.metrics;
+
+import com.example.demo.metrics.RequestTimings.Phase;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+// Đo giai đoạn service và repository cho RequestTimings. Tra cứu user khi xác thực JWT
+// được JwtAuthenticationFilter tính riêng (user) nên CustomUserDetailsService không nằm trong service;
+// StudentPayloadCache tự tính phần serialize.
+@Aspect
+@Component
+public class PhaseTimingAspect {
+
+    @Around("within(com.example.demo.service..*) && !within(com.example.demo.service.CustomUserDetailsService) "
+            + "&& !within(com.example.demo.service.StudentPayloadCache)")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestTimings.start(Phase.SERVICE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RequestTimings.stop(Phase.SERVICE);
+        }
+    }
+
+    // Proxy của Spring Data: mọi lời gọi repository (query, save, ...)
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestTimings.start(Phase.DB);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RequestTimings.stop(Phase.DB);
+        }
+    }
+}
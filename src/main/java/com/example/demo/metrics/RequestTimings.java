@@ -0,0 +1,134 @@
+package com.example.demo.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Thời gian theo từng giai đoạn của một request, đo bằng System.nanoTime().
+// RequestLoggingFilter mở/đóng đối tượng cho mỗi request trên luồng xử lý; các chỗ khác chỉ gọi
+// start()/stop(), ngoài request (hoặc trên luồng khác) thì stop() không làm gì.
+// Giai đoạn lồng vào chính nó (service gọi service) chỉ tính lần ngoài cùng.
+public final class RequestTimings {
+
+    public enum Phase {
+        RATE_LIMIT("ratelimit"),
+        AUTH("auth"),
+        USER_LOOKUP("user"),
+        SERVICE("service"),
+        DB("db"),
+        SERIALIZATION("serialize");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final long[] nanos = new long[PHASES.length];
+    private final int[] depth = new int[PHASES.length];
+    private final long[] openedAt = new long[PHASES.length];
+    private boolean headerWritten;
+
+    private RequestTimings() {
+    }
+
+    public static RequestTimings begin() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    // Cho luồng khác làm việc thay request (loader của AsyncCache) ghi vào cùng đối tượng; luồng của request
+    // phải đang chờ luồng đó xong, không ghi song song
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    public static void attach(RequestTimings timings) {
+        if (timings != null) {
+            CURRENT.set(timings);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    public static void start(Phase phase) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null && timings.depth[phase.ordinal()]++ == 0) {
+            timings.openedAt[phase.ordinal()] = System.nanoTime();
+        }
+    }
+
+    public static void stop(Phase phase) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null && timings.depth[phase.ordinal()] > 0 && --timings.depth[phase.ordinal()] == 0) {
+            timings.nanos[phase.ordinal()] += System.nanoTime() - timings.openedAt[phase.ordinal()];
+        }
+    }
+
+    public long nanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    // Header Server-Timing chỉ được ghi một lần cho mỗi request
+    public boolean markHeaderWritten() {
+        boolean first = !headerWritten;
+        headerWritten = true;
+        return first;
+    }
+
+    // Định dạng Server-Timing: ratelimit;dur=0.012, auth;dur=0.150, ..., total;dur=12.345 (đơn vị ms)
+    public String serverTimingHeader() {
+        StringBuilder header = new StringBuilder(128);
+        for (Phase phase : PHASES) {
+            long value = nanos[phase.ordinal()];
+            if (value > 0) {
+                appendMetric(header, phase.metricName(), value);
+            }
+        }
+        appendMetric(header, "total", elapsedNanos());
+        return header.toString();
+    }
+
+    // Trường log có cấu trúc, chỉ dựng khi dòng log thật sự được ghi
+    public Map<String, Double> toMillisMap() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for (Phase phase : PHASES) {
+            long value = nanos[phase.ordinal()];
+            if (value > 0) {
+                millis.put(phase.metricName(), value / 1_000_000.0);
+            }
+        }
+        return millis;
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long value) {
+        if (!header.isEmpty()) {
+            header.append(", ");
+        }
+        // ms với 3 chữ số thập phân, không dùng String.format để tránh chi phí parse format
+        long micros = value / 1_000;
+        long fraction = micros % 1_000;
+        header.append(name).append(";dur=").append(micros / 1_000).append('.');
+        if (fraction < 100) {
+            header.append(fraction < 10 ? "00" : "0");
+        }
+        header.append(fraction);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Đo thời gian và đếm request cho một endpoint của controller (xem TimedEndpointAspect).
+// Metric: <prefix>_request_duration{endpoint, outcome, status} và <prefix>_requests_total.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TimedEndpoint {
+
+    // Giá trị tag endpoint
+    String value();
+
+    String prefix() default "student";
+}
@@ -0,0 +1,66 @@
+package com.example.demo.metrics;
+
+import com.example.demo.controller.MetricsController;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Thay cho startTimer/increment/stopTimer lặp lại trong từng method của controller.
+// Meter của mọi method có @TimedEndpoint được resolve khi khởi động; mỗi request chỉ tra map theo Method
+// rồi ghi thời gian (nanoTime) vào Timer đã có sẵn, status lấy từ ResponseEntity, exception tính là 500.
+@Aspect
+@Component
+public class TimedEndpointAspect implements SmartInitializingSingleton {
+
+    @Autowired
+    private MetricsController metricsController;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private final ConcurrentHashMap<Method, EndpointMeters> meters = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (Object controller : applicationContext.getBeansWithAnnotation(RestController.class).values()) {
+            for (Method method : AopUtils.getTargetClass(controller).getDeclaredMethods()) {
+                TimedEndpoint timed = AnnotatedElementUtils.findMergedAnnotation(method, TimedEndpoint.class);
+                if (timed != null) {
+                    meters.computeIfAbsent(method, m -> metricsController.endpointMeters(timed.prefix(), timed.value()));
+                }
+            }
+        }
+    }
+
+    @Around("@annotation(com.example.demo.metrics.TimedEndpoint)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        EndpointMeters endpointMeters = meters.get(method);
+        if (endpointMeters == null) {
+            TimedEndpoint timed = AnnotatedElementUtils.findMergedAnnotation(method, TimedEndpoint.class);
+            endpointMeters = meters.computeIfAbsent(method,
+                    m -> metricsController.endpointMeters(timed.prefix(), timed.value()));
+        }
+        long start = System.nanoTime();
+        int status = 500;
+        try {
+            Object result = joinPoint.proceed();
+            status = result instanceof ResponseEntity<?> response ? response.getStatusCode().value() : 200;
+            return result;
+        } finally {
+            endpointMeters.record(status, System.nanoTime() - start);
+        }
+    }
+}
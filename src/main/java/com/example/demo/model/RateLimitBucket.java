@@ -0,0 +1,26 @@
+package com.example.demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+// Bucket rate limit dùng chung giữa các pod (rate-limit.backend=jdbc).
+// Chỉ đọc/ghi qua JdbcRateLimitBackend bằng compare-and-swap trên cột version, entity này khai báo schema.
+@Entity
+@Table(name = "rate_limit_buckets")
+@Data
+public class RateLimitBucket {
+
+    @Id
+    @Column(name = "bucket_key", length = 300)
+    private String bucketKey;
+
+    // Thời điểm (epoch nano giây) bucket đầy trở lại theo GCRA
+    @Column(name = "full_at", nullable = false)
+    private long fullAt;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+}
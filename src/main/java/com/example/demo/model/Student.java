@@ -2,12 +2,16 @@ package com.example.demo.model;
 
 import java.time.LocalDate;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Data;
 
 @Entity
@@ -16,7 +20,9 @@ import lombok.Data;
 public class Student {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence + pooled optimizer (thay cho IDENTITY) để Hibernate có thể gom batch các lệnh INSERT
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "students_seq")
+    @SequenceGenerator(name = "students_seq", sequenceName = "students_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "full_name", nullable = false)
@@ -27,4 +33,11 @@ public class Student {
     
     @Column(name = "school_category", length = 500)
     private String schoolCategory;
+
+    // Khóa lạc quan và ETag ("student-{id}-{version}"); kiểu nguyên thủy để Spring Data vẫn xét bản ghi mới theo id.
+    // Client chỉ đọc, điều kiện cập nhật gửi qua header If-Match
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
 }
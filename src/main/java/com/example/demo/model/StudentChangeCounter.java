@@ -0,0 +1,27 @@
+package com.example.demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Bộ đếm thay đổi của bảng students (một dòng id = 1), tăng trong cùng transaction với mỗi lần ghi.
+// Dùng làm ETag cho danh sách học viên: kiểm tra If-None-Match chỉ cần đọc một dòng theo khóa chính.
+@Entity
+@Table(name = "student_change_counter")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentChangeCounter {
+
+    public static final int STUDENTS = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "seq", nullable = false)
+    private long seq;
+}
@@ -0,0 +1,22 @@
+package com.example.demo.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.demo.model.StudentChangeCounter;
+
+public interface StudentChangeCounterRepository extends JpaRepository<StudentChangeCounter, Integer> {
+
+    @Query("SELECT c.seq FROM StudentChangeCounter c WHERE c.id = :id")
+    Optional<Long> findSeq(@Param("id") Integer id);
+
+    // Trả về số dòng được cập nhật, 0 nếu dòng đếm chưa tồn tại
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StudentChangeCounter c SET c.seq = c.seq + 1 WHERE c.id = :id")
+    int increment(@Param("id") Integer id);
+
+}
@@ -1,17 +1,89 @@
 package com.example.demo.repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.example.demo.dto.StudentExportRow;
+import com.example.demo.dto.StudentView;
 import com.example.demo.model.Student;
 
+import jakarta.persistence.QueryHint;
+
+// Các truy vấn đọc trả về StudentView (projection, không phải entity); ghi vẫn dùng entity Student
 public interface StudentRepository  extends JpaRepository<Student, Long> {
 
+    // Cột của StudentView cho truy vấn native, alias trùng tên thành phần record
+    String VIEW_COLUMNS = "s.id AS id, s.full_name AS \"fullName\", s.birth_date AS \"birthDate\", "
+            + "s.school_category AS \"schoolCategory\", s.version AS version ";
+
+    String VIEW_CONSTRUCTOR = "SELECT new com.example.demo.dto.StudentView("
+            + "s.id, s.fullName, s.birthDate, s.schoolCategory, s.version) ";
+
+    @Query(VIEW_CONSTRUCTOR + "FROM Student s WHERE s.id = :id")
+    Optional<StudentView> findViewById(@Param("id") Long id);
    
-    List<Student> findByFullNameContainingIgnoreCase(String fullName);
+    List<StudentView> findByFullNameContainingIgnoreCase(String fullName, Limit limit);
     
    
-    List<Student> findBySchoolCategoryContainingIgnoreCase(String schoolCategory);
+    List<StudentView> findBySchoolCategoryContainingIgnoreCase(String schoolCategory, Limit limit);
+
+    List<StudentView> findByFullNameContainingIgnoreCaseOrSchoolCategoryContainingIgnoreCase(
+            String fullName, String schoolCategory, Limit limit);
+
+    // Tìm kiếm dùng GIN index pg_trgm trên f_unaccent(lower(...)) (db/migration/V2__student_search.sql),
+    // không phân biệt hoa thường/dấu, xếp hạng theo similarity. :pattern đã được escape ký tự LIKE.
+    @Query(value = "SELECT " + VIEW_COLUMNS + "FROM students s "
+            + "WHERE f_unaccent(lower(s.full_name)) LIKE '%' || f_unaccent(lower(:pattern)) || '%' "
+            + "ORDER BY similarity(f_unaccent(lower(s.full_name)), f_unaccent(lower(:term))) DESC, s.id ASC "
+            + "LIMIT :limit", nativeQuery = true)
+    List<StudentView> searchByFullNameRanked(@Param("pattern") String pattern, @Param("term") String term,
+                                         @Param("limit") int limit);
+
+    @Query(value = "SELECT " + VIEW_COLUMNS + "FROM students s "
+            + "WHERE f_unaccent(lower(s.school_category)) LIKE '%' || f_unaccent(lower(:pattern)) || '%' "
+            + "ORDER BY similarity(f_unaccent(lower(s.school_category)), f_unaccent(lower(:term))) DESC, s.id ASC "
+            + "LIMIT :limit", nativeQuery = true)
+    List<StudentView> searchBySchoolCategoryRanked(@Param("pattern") String pattern, @Param("term") String term,
+                                               @Param("limit") int limit);
+
+    @Query(value = "SELECT " + VIEW_COLUMNS + "FROM students s "
+            + "WHERE f_unaccent(lower(s.full_name)) LIKE '%' || f_unaccent(lower(:pattern)) || '%' "
+            + "OR f_unaccent(lower(s.school_category)) LIKE '%' || f_unaccent(lower(:pattern)) || '%' "
+            + "ORDER BY GREATEST(similarity(f_unaccent(lower(s.full_name)), f_unaccent(lower(:term))), "
+            + "COALESCE(similarity(f_unaccent(lower(s.school_category)), f_unaccent(lower(:term))), 0)) DESC, "
+            + "s.id ASC "
+            + "LIMIT :limit", nativeQuery = true)
+    List<StudentView> searchRanked(@Param("pattern") String pattern, @Param("term") String term,
+                               @Param("limit") int limit);
+
+    // Keyset theo id: trang đầu tiên và các trang tiếp theo
+    List<StudentView> findAllByOrderByIdAsc(Limit limit);
+
+    List<StudentView> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Keyset theo (full_name, id)
+    List<StudentView> findAllByOrderByFullNameAscIdAsc(Limit limit);
+
+    @Query(VIEW_CONSTRUCTOR + "FROM Student s "
+            + "WHERE s.fullName > :fullName OR (s.fullName = :fullName AND s.id > :id) "
+            + "ORDER BY s.fullName ASC, s.id ASC")
+    List<StudentView> findAfterFullName(@Param("fullName") String fullName, @Param("id") Long id, Limit limit);
+
+    // Cursor JDBC forward-only cho export, phải gọi trong transaction và đóng stream sau khi dùng
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.example.demo.dto.StudentExportRow(s.id, s.fullName, s.birthDate, s.schoolCategory) "
+            + "FROM Student s ORDER BY s.id ASC")
+    Stream<StudentExportRow> streamAllForExport();
 
 }
@@ -0,0 +1,9 @@
+package com.example.demo.security;
+
+// Refresh token không tồn tại, hết hạn, đã bị thu hồi hoặc đã được dùng để đổi token (401)
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
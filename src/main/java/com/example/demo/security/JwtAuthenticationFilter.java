@@ -1,13 +1,17 @@
 package com.example.demo.security;
 
+import com.example.demo.metrics.RequestTimings;
 import com.example.demo.service.CustomUserDetailsService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -15,41 +19,79 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // Claims của token đã xác thực, cho các kết nối dài (luồng thay đổi học viên) tự đóng khi token hết hạn/bị thu hồi
+    public static final String CLAIMS_ATTRIBUTE = "com.example.demo.security.JwtAuthenticationFilter.claims";
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    // database: lấy quyền từ principal đã cache (theo username); token: lấy từ claim roles, không truy vấn DB
+    @Value("${jwt.authorities-source:database}")
+    private String authoritiesSource;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
 
 
+        RequestTimings.start(RequestTimings.Phase.AUTH);
         try {
             
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtil.validateJwtToken(jwt)) {
-                String username = jwtUtil.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = 
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            // Xác thực chữ ký đúng một lần, các bước sau dùng lại claims
+            Claims claims = jwt != null ? jwtUtil.verify(jwt) : null;
+            // Token đã bị thu hồi (logout, refresh token bị dùng lại): kiểm tra Bloom filter trong bộ nhớ
+            if (claims != null && !tokenRevocationService.isRevoked(claims)) {
+                UserDetails userDetails;
+                RequestTimings.start(RequestTimings.Phase.USER_LOOKUP);
+                try {
+                    userDetails = resolvePrincipal(claims);
+                } finally {
+                    RequestTimings.stop(RequestTimings.Phase.USER_LOOKUP);
+                }
+                if (userDetails.isEnabled()) {
+                    UsernamePasswordAuthenticationToken authentication = 
+                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    request.setAttribute(CLAIMS_ATTRIBUTE, claims);
+                }
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e);
+        } finally {
+            RequestTimings.stop(RequestTimings.Phase.AUTH);
         }
 
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolvePrincipal(Claims claims) {
+        if ("token".equals(authoritiesSource)) {
+            List<?> roles = claims.get(JwtUtil.ROLES_CLAIM, List.class);
+            // Token cũ chưa có claim roles thì quay lại tra DB
+            if (roles != null) {
+                return User.withUsername(claims.getSubject())
+                        .password("")
+                        .authorities(roles.stream().map(String::valueOf).toArray(String[]::new))
+                        .build();
+            }
+        }
+        return userDetailsService.loadPrincipal(claims.getSubject());
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
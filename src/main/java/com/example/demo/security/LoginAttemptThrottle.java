@@ -0,0 +1,96 @@
+package com.example.demo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Giới hạn login sai theo username (SimpleRateLimitFilter chỉ giới hạn theo IP khi chưa đăng nhập):
+// sau max-failures lần sai liên tiếp, username bị khóa lockout, mỗi lần sai tiếp theo khi hết khóa thì
+// thời gian khóa gấp đôi (tối đa max-lockout). Kiểm tra trước khi băm mật khẩu nên không tốn CPU.
+@Component
+public class LoginAttemptThrottle {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.login.max-failures:5}")
+    private int maxFailures;
+
+    @Value("${auth.login.lockout:30s}")
+    private Duration lockout;
+
+    @Value("${auth.login.max-lockout:15m}")
+    private Duration maxLockout;
+
+    @Value("${auth.login.max-keys:100000}")
+    private long maxKeys;
+
+    private Cache<String, Attempts> attempts;
+    private Counter throttledCounter;
+
+    @PostConstruct
+    public void init() {
+        // Giữ trạng thái lâu hơn thời gian khóa dài nhất để bộ đếm không bị reset giữa chừng
+        attempts = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(maxLockout.multipliedBy(2))
+                .build();
+        throttledCounter = Counter.builder("auth_login_throttled_total")
+                .description("Login attempts rejected because the username is temporarily locked")
+                .register(meterRegistry);
+    }
+
+    // Số giây còn bị khóa, 0 nếu được phép thử
+    public long retryAfterSeconds(String username) {
+        Attempts state = attempts.getIfPresent(key(username));
+        if (state == null) {
+            return 0;
+        }
+        long remaining = state.remainingNanos(System.nanoTime());
+        if (remaining <= 0) {
+            return 0;
+        }
+        throttledCounter.increment();
+        return Math.max(1, Duration.ofNanos(remaining).toSeconds());
+    }
+
+    public void recordFailure(String username) {
+        attempts.asMap().compute(key(username), (key, state) -> {
+            Attempts next = state == null ? new Attempts() : state;
+            next.failures++;
+            if (next.failures >= maxFailures) {
+                int doublings = Math.min(next.failures - maxFailures, 20);
+                Duration duration = lockout.multipliedBy(1L << doublings);
+                if (duration.compareTo(maxLockout) > 0) {
+                    duration = maxLockout;
+                }
+                next.lockedUntil = System.nanoTime() + duration.toNanos();
+            }
+            return next;
+        });
+    }
+
+    public void recordSuccess(String username) {
+        attempts.invalidate(key(username));
+    }
+
+    private static String key(String username) {
+        return username == null ? "" : username.trim().toLowerCase();
+    }
+
+    private static final class Attempts {
+        private volatile int failures;
+        private volatile long lockedUntil;
+
+        private long remainingNanos(long now) {
+            return failures == 0 || lockedUntil == 0 ? 0 : lockedUntil - now;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Băm/kiểm tra mật khẩu (BCrypt ~ vài chục ms CPU mỗi lần) trên vài thread riêng với hàng đợi có giới hạn,
+// để một đợt login không chiếm hết CPU của thread xử lý request đọc học viên.
+// Hàng đợi đầy thì ném PasswordHashingRejectedException ngay (503), không chờ.
+@Component
+public class PasswordHashingExecutor {
+
+    public static final String ENCODE = "encode";
+    public static final String MATCHES = "matches";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Container 500m CPU: một thread băm là đủ, thêm thread chỉ tranh CPU với request khác
+    @Value("${auth.hashing.threads:1}")
+    private int threads;
+
+    @Value("${auth.hashing.queue-capacity:20}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private Timer queueWaitTimer;
+    private Map<String, Timer> hashTimers;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger sequence = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("auth_password_hash_queue_depth", executor, e -> e.getQueue().size())
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("auth_password_hash_active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing tasks currently running")
+                .register(meterRegistry);
+        queueWaitTimer = Timer.builder("auth_password_hash_queue_wait")
+                .description("Time a password hashing task waited in the queue")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        hashTimers = new HashMap<>();
+        for (String operation : List.of(ENCODE, MATCHES)) {
+            hashTimers.put(operation, Timer.builder("auth_password_hash_duration")
+                    .description("Time spent hashing or verifying a password on a worker")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        rejectedCounter = Counter.builder("auth_password_hash_rejected_total")
+                .description("Password hashing tasks rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Chạy task trên pool băm và chờ kết quả; operation (ENCODE/MATCHES) là tag của auth_password_hash_duration
+    public <T> T execute(String operation, Callable<T> task) {
+        Timer hashTimer = hashTimers.get(operation);
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException("Password hashing queue is full");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.demo.security;
+
+// Hàng đợi băm mật khẩu đã đầy, request login bị từ chối ngay (503) thay vì xếp hàng
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
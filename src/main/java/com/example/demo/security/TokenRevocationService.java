@@ -0,0 +1,156 @@
+package com.example.demo.security;
+
+import com.example.demo.model.RevokedToken;
+import com.example.demo.repository.RefreshTokenRepository;
+import com.example.demo.repository.RevokedTokenRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Kiểm tra access token đã bị thu hồi (theo jti hoặc sid) mà không truy vấn DB mỗi request:
+// Bloom filter trong bộ nhớ trả lời "chắc chắn chưa thu hồi" cho gần như mọi token, chỉ khi filter
+// báo có (thu hồi thật hoặc dương tính giả) mới hỏi bảng revoked_tokens, kết quả được cache ngắn hạn.
+// Filter được dựng lại định kỳ từ DB: bỏ id đã hết hạn và nhận id do pod khác thu hồi; cùng lúc đó
+// dọn các dòng hết hạn của revoked_tokens và refresh_tokens.
+@Component
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${jwt.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${jwt.revocation.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${jwt.revocation.rebuild-interval:30s}")
+    private Duration rebuildInterval;
+
+    // null cho tới lần dựng đầu tiên thành công (DB chưa sẵn sàng lúc khởi động): mọi id đều hỏi DB
+    private volatile RevocationBloomFilter filter;
+    // Id thu hồi trên pod này chưa thấy trong lần dựng lại gần nhất (transaction chưa commit lúc đọc DB)
+    private final Map<String, Boolean> pending = new ConcurrentHashMap<>();
+    private Cache<String, Boolean> confirmed;
+    private ScheduledExecutorService rebuilder;
+    private Counter revokedHits;
+    private Counter falsePositives;
+
+    @PostConstruct
+    public void init() {
+        confirmed = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(rebuildInterval)
+                .build();
+        revokedHits = Counter.builder("jwt_revocation_lookups_total")
+                .description("Bloom filter positives checked against the database")
+                .tag("result", "revoked")
+                .register(meterRegistry);
+        falsePositives = Counter.builder("jwt_revocation_lookups_total")
+                .description("Bloom filter positives checked against the database")
+                .tag("result", "false_positive")
+                .register(meterRegistry);
+        Gauge.builder("jwt_revocation_filter_bits", this,
+                        service -> service.filter == null ? 0 : service.filter.getBitCount())
+                .description("Size of the revocation Bloom filter in bits")
+                .register(meterRegistry);
+        // Không chặn khởi động khi DB lỗi (và khi chạy huấn luyện CDS không có DB), lần sau sẽ dựng lại
+        rebuildQuietly();
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwt-revocation-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = rebuildInterval.toMillis();
+        rebuilder.scheduleWithFixedDelay(this::rebuildQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    public boolean isRevoked(Claims claims) {
+        return isRevoked(claims.getId()) || isRevoked(claims.get(JwtUtil.SESSION_CLAIM, String.class));
+    }
+
+    public boolean isRevoked(String id) {
+        RevocationBloomFilter current = filter;
+        if (id == null || (current != null && !current.mightContain(id))) {
+            return false;
+        }
+        boolean revoked = confirmed.get(id, revokedTokenRepository::existsById);
+        (revoked ? revokedHits : falsePositives).increment();
+        return revoked;
+    }
+
+    // Ghi trong transaction của caller; filter được cập nhật ngay (nếu transaction rollback thì chỉ thêm
+    // một dương tính giả, DB vẫn trả lời đúng)
+    public void revoke(String id, Instant expiresAt) {
+        revokedTokenRepository.save(new RevokedToken(id, expiresAt));
+        // Ghi vào pending trước khi đọc filter: rebuild() thay filter rồi mới thêm lại pending nên không mất id
+        pending.put(id, Boolean.TRUE);
+        RevocationBloomFilter current = filter;
+        if (current != null) {
+            current.add(id);
+        }
+        confirmed.invalidate(id);
+    }
+
+    public void rebuild() {
+        Instant now = Instant.now();
+        List<String> ids = new TransactionTemplate(transactionManager).execute(status -> {
+            revokedTokenRepository.deleteExpired(now);
+            refreshTokenRepository.deleteExpired(now);
+            return revokedTokenRepository.findActiveIds(now);
+        });
+        RevocationBloomFilter rebuilt = new RevocationBloomFilter(
+                Math.max(expectedEntries, ids.size() * 2), falsePositiveRate);
+        ids.forEach(rebuilt::add);
+        filter = rebuilt;
+        pending.keySet().forEach(rebuilt::add);
+        pending.keySet().removeAll(new HashSet<>(ids));
+        confirmed.invalidateAll();
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Cannot rebuild token revocation filter, keeping the previous one: {}", e.getMessage());
+        }
+    }
+}
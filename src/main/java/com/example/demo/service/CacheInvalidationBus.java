@@ -0,0 +1,483 @@
+package com.example.demo.service;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.datasource.ReplicaLagWindow;
+import com.example.demo.dto.CacheInvalidationMessage;
+import com.example.demo.dto.StudentChangeEvent;
+import com.example.demo.model.Student;
+import com.example.demo.repository.StudentRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Xóa cache cục bộ (học viên, principal, chỉ mục autocomplete) khi pod khác ghi, qua LISTEN/NOTIFY của PostgreSQL.
+// Gửi: thay đổi đã commit được gom trong coalesce-window rồi gửi bằng một NOTIFY (chia nhỏ nếu quá 8000 byte).
+// Nhận: connection riêng ngoài pool Hikari (luôn tới primary, replica không nhận NOTIFY), tự kết nối lại;
+// thông báo gửi trong lúc mất kết nối không được giữ lại nên sau khi kết nối lại thì xóa toàn bộ cache.
+@Component
+public class CacheInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    // Giới hạn payload mặc định của NOTIFY là 8000 byte
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final long POLL_MILLIS = 500;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private StudentAutocompleteIndex autocompleteIndex;
+
+    @Autowired
+    private StudentChangeFeed changeFeed;
+
+    @Autowired
+    private ReplicaLagWindow replicaLagWindow;
+
+    @Value("${cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.invalidation.channel:cache_invalidation}")
+    private String channel;
+
+    @Value("${cache.invalidation.coalesce-window:50ms}")
+    private Duration coalesceWindow;
+
+    @Value("${cache.invalidation.reconnect-backoff:1s}")
+    private Duration reconnectBackoff;
+
+    @Value("${cache.invalidation.max-reconnect-backoff:30s}")
+    private Duration maxReconnectBackoff;
+
+    @Value("${cache.invalidation.keepalive-interval:30s}")
+    private Duration keepaliveInterval;
+
+    // Lô nhận được có nhiều học viên hơn thì phát một sự kiện reset thay vì từng sự kiện (tránh tràn subscriber-buffer)
+    @Value("${cache.invalidation.max-feed-events:32}")
+    private int maxFeedEvents;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    // Bỏ qua thông báo do chính pod này gửi: cache đã được xóa lúc ghi
+    private final String origin = UUID.randomUUID().toString();
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<Long, String> pendingStudents = new LinkedHashMap<>();
+    private Set<String> pendingUsers = new LinkedHashSet<>();
+    private long pendingSince;
+    private boolean flushScheduled;
+    private ScheduledExecutorService flusher;
+    private Thread listener;
+    private volatile boolean running;
+    private volatile boolean connected;
+    private Counter changes;
+    private Counter sent;
+    private Counter received;
+    private Counter publishFailures;
+    private Counter reconnects;
+    private Timer lag;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        changes = Counter.builder("cache_invalidation_changes_total")
+                .description("Committed writes queued for cross-pod invalidation")
+                .register(meterRegistry);
+        sent = Counter.builder("cache_invalidation_messages_total")
+                .description("NOTIFY messages on the cache invalidation channel")
+                .tag("direction", "sent")
+                .register(meterRegistry);
+        received = Counter.builder("cache_invalidation_messages_total")
+                .description("NOTIFY messages on the cache invalidation channel")
+                .tag("direction", "received")
+                .register(meterRegistry);
+        publishFailures = Counter.builder("cache_invalidation_publish_failures_total")
+                .description("Failed NOTIFY attempts, the batch is retried")
+                .register(meterRegistry);
+        reconnects = Counter.builder("cache_invalidation_reconnects_total")
+                .description("Listener reconnects, each one clears all local caches")
+                .register(meterRegistry);
+        Gauge.builder("cache_invalidation_listener_connected", this, bus -> bus.connected ? 1 : 0)
+                .description("1 while the LISTEN connection is open")
+                .register(meterRegistry);
+        // Đồng hồ của các pod lệch nhau thì độ trễ lệch theo
+        lag = Timer.builder("cache_invalidation_lag")
+                .description("Time from the first write of a batch on one pod to the invalidation applied on another")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-notify");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Bắt đầu nghe khi ứng dụng đã sẵn sàng (lần chạy huấn luyện CDS thoát trước đó, không cần DB)
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!url.startsWith("jdbc:postgresql:")) {
+            log.warn("Cache invalidation needs PostgreSQL LISTEN/NOTIFY, not listening on {}", url);
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "cache-invalidation-listen");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        flusher.shutdownNow();
+        // Gửi nốt các thay đổi còn chờ
+        flush();
+    }
+
+    public void studentChanged(String type, Long id) {
+        afterCommit(() -> pendingStudents.merge(id, type, CacheInvalidationBus::mergeType));
+    }
+
+    public void userChanged(String username) {
+        afterCommit(() -> pendingUsers.add(username));
+    }
+
+    // created rồi updated trong cùng lô vẫn là created; deleted thay cho mọi thay đổi trước đó
+    private static String mergeType(String earlier, String later) {
+        if (StudentChangeEvent.UPDATED.equals(later) && StudentChangeEvent.CREATED.equals(earlier)) {
+            return earlier;
+        }
+        return later;
+    }
+
+    // Pod khác chỉ nạp lại sau khi dữ liệu đã commit; rollback thì không gửi
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committed(change);
+                }
+            });
+        } else {
+            committed(change);
+        }
+    }
+
+    // Chạy trước khi cache của pod này bị xóa (cache advice bọc ngoài transaction)
+    private void committed(Runnable change) {
+        replicaLagWindow.open();
+        if (enabled) {
+            enqueue(change);
+        }
+    }
+
+    private void enqueue(Runnable change) {
+        lock.lock();
+        try {
+            if (pendingStudents.isEmpty() && pendingUsers.isEmpty()) {
+                pendingSince = System.currentTimeMillis();
+            }
+            change.run();
+            changes.increment();
+            scheduleFlush(coalesceWindow.toMillis());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Gọi khi đang giữ lock
+    private void scheduleFlush(long delayMillis) {
+        if (!flushScheduled && !flusher.isShutdown()) {
+            flushScheduled = true;
+            flusher.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<Long, String> students;
+        Set<String> users;
+        long since;
+        lock.lock();
+        try {
+            flushScheduled = false;
+            students = pendingStudents;
+            users = pendingUsers;
+            since = pendingSince;
+            pendingStudents = new LinkedHashMap<>();
+            pendingUsers = new LinkedHashSet<>();
+        } finally {
+            lock.unlock();
+        }
+        if (students.isEmpty() && users.isEmpty()) {
+            return;
+        }
+        try {
+            send(students, new ArrayList<>(users), since);
+        } catch (RuntimeException e) {
+            publishFailures.increment();
+            log.warn("Cache invalidation NOTIFY failed, retrying in {}: {}", reconnectBackoff, e.getMessage());
+            // Gửi lại cả lô (xóa cache hai lần không sao); thay đổi mới hơn trong lúc chờ được giữ nguyên
+            lock.lock();
+            try {
+                pendingSince = pendingStudents.isEmpty() && pendingUsers.isEmpty() ? since : Math.min(pendingSince, since);
+                students.forEach((id, type) -> pendingStudents.merge(id, type, (later, earlier) -> mergeType(earlier, later)));
+                pendingUsers.addAll(users);
+                scheduleFlush(reconnectBackoff.toMillis());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Lô vượt giới hạn payload thì chia đôi tới khi vừa
+    private void send(Map<Long, String> students, List<String> users, long since) {
+        String payload = json(new CacheInvalidationMessage(origin, since, students, users));
+        if (payload.getBytes(StandardCharsets.UTF_8).length <= MAX_PAYLOAD_BYTES || students.size() + users.size() <= 1) {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", (ResultSetExtractor<Void>) rs -> null, channel, payload);
+            sent.increment();
+            return;
+        }
+        Map<Long, String> firstStudents = new LinkedHashMap<>();
+        Map<Long, String> restStudents = new LinkedHashMap<>();
+        int half = students.size() / 2;
+        for (Map.Entry<Long, String> entry : students.entrySet()) {
+            (firstStudents.size() < half ? firstStudents : restStudents).put(entry.getKey(), entry.getValue());
+        }
+        int userHalf = users.size() / 2;
+        send(firstStudents, users.subList(0, userHalf), since);
+        send(restStudents, users.subList(userHalf, users.size()), since);
+    }
+
+    private String json(CacheInvalidationMessage message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void listen() {
+        long backoff = reconnectBackoff.toMillis();
+        boolean firstConnection = true;
+        while (running) {
+            try (Connection connection = connect()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                connected = true;
+                backoff = reconnectBackoff.toMillis();
+                if (!firstConnection) {
+                    reconnects.increment();
+                    invalidateAll();
+                }
+                firstConnection = false;
+                receive(connection);
+            } catch (SQLException | RuntimeException e) {
+                if (running) {
+                    log.warn("Cache invalidation listener disconnected, reconnecting in {} ms: {}", backoff, e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, maxReconnectBackoff.toMillis());
+        }
+    }
+
+    // Connection riêng, không lấy từ pool: giữ suốt thời gian chạy. socketTimeout để phát hiện kết nối chết
+    // khi truy vấn keepalive không có phản hồi
+    private Connection connect() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", username);
+        properties.setProperty("password", password);
+        properties.setProperty("socketTimeout", "10");
+        properties.setProperty("tcpKeepAlive", "true");
+        properties.setProperty("ApplicationName", "cache-invalidation-listener");
+        return DriverManager.getConnection(url, properties);
+    }
+
+    private void receive(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long lastActivity = System.nanoTime();
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications((int) POLL_MILLIS);
+            if (notifications != null && notifications.length > 0) {
+                for (PGNotification notification : notifications) {
+                    apply(notification.getParameter());
+                }
+                lastActivity = System.nanoTime();
+            } else if (System.nanoTime() - lastActivity > keepaliveInterval.toNanos()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+                lastActivity = System.nanoTime();
+            }
+        }
+    }
+
+    private void apply(String payload) {
+        CacheInvalidationMessage message;
+        try {
+            message = objectMapper.readValue(payload, CacheInvalidationMessage.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cache invalidation payload: {}", e.getMessage());
+            return;
+        }
+        if (origin.equals(message.origin())) {
+            return;
+        }
+        received.increment();
+        replicaLagWindow.open();
+        if (message.students() != null && !message.students().isEmpty()) {
+            applyStudents(message.students());
+        }
+        if (message.users() != null) {
+            Cache principals = cacheManager.getCache(CacheConfig.PRINCIPALS);
+            message.users().forEach(principals::evict);
+        }
+        lag.record(Math.max(System.currentTimeMillis() - message.changedAt(), 0), TimeUnit.MILLISECONDS);
+    }
+
+    // Giống phần xóa cache của StudentService khi ghi, thêm cập nhật chỉ mục autocomplete và luồng thay đổi (SSE)
+    // của pod này
+    private void applyStudents(Map<Long, String> students) {
+        Cache studentCache = cacheManager.getCache(CacheConfig.STUDENTS);
+        students.keySet().forEach(studentCache::evict);
+        clearStudentCollections();
+
+        List<Long> live = new ArrayList<>();
+        students.forEach((id, type) -> {
+            if (!StudentChangeEvent.DELETED.equals(type)) {
+                live.add(id);
+            }
+        });
+        // Transaction ghi để đọc từ primary: replica có thể chưa có thay đổi
+        Map<Long, Student> rows = new HashMap<>();
+        if (!live.isEmpty()) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    studentRepository.findAllById(live).forEach(student -> rows.put(student.getId(), student)));
+        }
+        boolean feedEach = students.size() <= maxFeedEvents;
+        students.forEach((id, type) -> {
+            if (StudentChangeEvent.DELETED.equals(type)) {
+                autocompleteIndex.remove(id);
+                if (feedEach) {
+                    changeFeed.deleted(id);
+                }
+                return;
+            }
+            // Không còn: đã bị xóa sau đó, thông báo xóa sẽ tới sau
+            Student student = rows.get(id);
+            if (student != null) {
+                autocompleteIndex.index(student);
+                if (!feedEach) {
+                    return;
+                }
+                if (StudentChangeEvent.CREATED.equals(type)) {
+                    changeFeed.created(student);
+                } else {
+                    changeFeed.updated(student);
+                }
+            }
+        });
+        if (!feedEach) {
+            changeFeed.reset();
+        }
+    }
+
+    private void invalidateAll() {
+        replicaLagWindow.open();
+        cacheManager.getCache(CacheConfig.STUDENTS).clear();
+        cacheManager.getCache(CacheConfig.PRINCIPALS).clear();
+        clearStudentCollections();
+        autocompleteIndex.rebuild();
+        changeFeed.reset();
+    }
+
+    private void clearStudentCollections() {
+        cacheManager.getCache(CacheConfig.STUDENT_PAGES).clear();
+        cacheManager.getCache(CacheConfig.STUDENT_SEARCH).clear();
+        cacheManager.getCache(CacheConfig.STUDENT_PAYLOADS).clear();
+    }
+}
@@ -1,24 +1,35 @@
 package com.example.demo.service;
 
+import com.example.demo.config.CacheConfig;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepository userRepository;
 
+    // Principal cache theo pod: báo các pod khác xóa khi user/quyền thay đổi
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    // Read-only: đọc từ replica khi bật datasource.routing
     @Override
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
@@ -35,6 +46,35 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .build();
     }
 
+    // Principal cho request đã có JWT: cache ngắn hạn theo username, không giữ mật khẩu
+    // (ProviderManager xóa credentials trên UserDetails sau khi login nên không cache loadUserByUsername)
+    @Cacheable(cacheNames = CacheConfig.PRINCIPALS, key = "#username", sync = true)
+    @Transactional(readOnly = true)
+    public UserDetails loadPrincipal(String username) throws UsernameNotFoundException {
+        UserDetails userDetails = loadUserByUsername(username);
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password("")
+                .build();
+    }
+
+    // Gọi bởi DaoAuthenticationProvider sau login thành công khi hash đang lưu dùng thuật toán/cost cũ
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRINCIPALS, key = "#user.username")
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.findByUsername(user.getUsername()).ifPresent(entity -> entity.setPassword(newPassword));
+        invalidationBus.userChanged(user.getUsername());
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
+    // Xóa principal khỏi cache khi user bị khóa hoặc đổi quyền
+    @CacheEvict(cacheNames = CacheConfig.PRINCIPALS, key = "#username")
+    public void evictPrincipal(String username) {
+        invalidationBus.userChanged(username);
+    }
+
     // Thêm method tiện ích để get user entity
     public User findByUsername(String username) {
         return userRepository.findByUsername(username)
@@ -46,9 +86,12 @@ public class CustomUserDetailsService implements UserDetailsService {
         return userRepository.existsByUsername(username);
     }
 
-    // Method để save user (nếu cần)
+    // Method để save user (nếu cần), principal cũ trong cache bị xóa
+    @CacheEvict(cacheNames = CacheConfig.PRINCIPALS, key = "#user.username")
     public User saveUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        invalidationBus.userChanged(saved.getUsername());
+        return saved;
     }
 
     // Method để get all users (cho admin)
@@ -0,0 +1,123 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.IssuedRefreshToken;
+import com.example.demo.model.RefreshToken;
+import com.example.demo.repository.RefreshTokenRepository;
+import com.example.demo.security.InvalidRefreshTokenException;
+import com.example.demo.security.JwtUtil;
+import com.example.demo.security.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+// Refresh token xoay vòng: mỗi token chỉ đổi được một lần. Dùng lại token đã đổi (sau reuse-grace) được coi là
+// token bị lộ: cả phiên (family) bị thu hồi, kể cả access token còn hạn (qua claim sid).
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Value("${jwt.refresh.expiration:30d}")
+    private Duration refreshTokenTtl;
+
+    // Hai request refresh gần như đồng thời (nhiều tab) với cùng token: request thua bị từ chối
+    // nhưng không thu hồi cả phiên
+    @Value("${jwt.refresh.reuse-grace:10s}")
+    private Duration reuseGrace;
+
+    @Transactional
+    public IssuedRefreshToken issue(String username) {
+        return issue(username, UUID.randomUUID().toString());
+    }
+
+    // Đổi refresh token lấy token mới cùng phiên; bị từ chối thì ném InvalidRefreshTokenException
+    // (không rollback để việc thu hồi phiên khi phát hiện dùng lại vẫn được ghi)
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public IssuedRefreshToken rotate(String rawToken) {
+        if (rawToken == null || rawToken.isEmpty()) {
+            throw new InvalidRefreshTokenException("Refresh token is missing");
+        }
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new InvalidRefreshTokenException("Unknown refresh token"));
+        Instant now = Instant.now();
+        if (current.isRevoked() || current.getExpiresAt().isBefore(now)) {
+            throw new InvalidRefreshTokenException("Refresh token is expired or revoked");
+        }
+        if (current.getRotatedAt() != null) {
+            if (current.getRotatedAt().plus(reuseGrace).isBefore(now)) {
+                revokeFamily(current.getFamilyId());
+            }
+            throw new InvalidRefreshTokenException("Refresh token was already used");
+        }
+        if (refreshTokenRepository.markRotated(current.getId(), now) == 0) {
+            // Request khác vừa đổi token này
+            throw new InvalidRefreshTokenException("Refresh token was already used");
+        }
+        return issue(current.getUsername(), current.getFamilyId());
+    }
+
+    // Logout: thu hồi phiên của refresh token (nếu còn tồn tại), trả về family_id đã thu hồi hoặc null
+    @Transactional
+    public String revoke(String rawToken) {
+        if (rawToken == null || rawToken.isEmpty()) {
+            return null;
+        }
+        return refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .map(token -> {
+                    revokeFamily(token.getFamilyId());
+                    return token.getFamilyId();
+                })
+                .orElse(null);
+    }
+
+    // Mọi refresh token của phiên bị vô hiệu, access token mang sid này bị chặn tới khi hết hạn
+    @Transactional
+    public void revokeFamily(String familyId) {
+        refreshTokenRepository.revokeFamily(familyId);
+        tokenRevocationService.revoke(familyId, Instant.now().plus(jwtUtil.getAccessTokenTtl()));
+    }
+
+    private IssuedRefreshToken issue(String username, String familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(hash(rawToken));
+        token.setUsername(username);
+        token.setFamilyId(familyId);
+        token.setCreatedAt(Instant.now());
+        token.setExpiresAt(token.getCreatedAt().plus(refreshTokenTtl));
+        refreshTokenRepository.save(token);
+        return new IssuedRefreshToken(rawToken, username, familyId);
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(rawToken.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,753 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.StudentExportRow;
+import com.example.demo.dto.StudentSuggestion;
+import com.example.demo.model.Student;
+import com.example.demo.repository.StudentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Chỉ mục trong bộ nhớ cho autocomplete học viên.
+ * Inverted index trên token đã bỏ dấu, chữ thường của fullName và schoolCategory ("Nguy" khớp "Nguyễn"),
+ * từ điển token được sắp xếp để tra theo tiền tố. Posting list là mảng int số thứ tự doc, tên lưu
+ * trong một vùng byte chung; cập nhật/xóa đánh dấu tombstone và chỉ mục tự compact khi tombstone chiếm quá nửa.
+ */
+@Component
+public class StudentAutocompleteIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentAutocompleteIndex.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_SCHOOL = -1;
+    private static final byte[] EMPTY = new byte[0];
+    private static final String[] NO_TOKENS = new String[0];
+    private static final int MAX_TEXT_LENGTH = 0xFFFF;
+    private static final int TIER_NAME_EXACT = 0;
+    private static final int TIER_NAME_PREFIX = 1;
+    private static final int TIER_SCHOOL = 2;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${student.autocomplete.enabled:true}")
+    private boolean enabled = true;
+
+    // Số bản ghi khớp tối đa được chấm điểm ở mỗi tầng của truy vấn, giữ độ trễ ổn định với tiền tố ngắn
+    @Value("${student.autocomplete.candidate-limit:100}")
+    private int candidateLimit = 100;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    // Dữ liệu theo doc (số thứ tự nội bộ, tăng dần khi thêm). Tên gốc và tên đã bỏ dấu (UTF-8)
+    // nằm liền nhau trong một vùng byte chung, textLengths = (độ dài tên gốc << 16) | độ dài tên bỏ dấu.
+    private long[] ids;
+    private int[] textStarts;
+    private int[] textLengths;
+    private int[] schools;
+    private byte[] text;
+    private int textSize;
+    private BitSet deleted;
+    private int docCount;
+    private int deletedCount;
+
+    private LongIntMap docById;
+    // token trong tên -> doc
+    private TreeMap<String, IntList> namePostings;
+    // token trong tên trường -> số thứ tự trường; trường -> doc
+    private TreeMap<String, IntList> schoolPostings;
+    private final List<IntList> schoolDocs = new ArrayList<>();
+
+    // schoolCategory lặp lại rất nhiều nên mỗi giá trị chỉ lưu một lần
+    private final List<String> schoolValues = new ArrayList<>();
+    private final List<String[]> schoolTokens = new ArrayList<>();
+    private final Map<String, Integer> schoolOrdinals = new HashMap<>();
+
+    public StudentAutocompleteIndex() {
+        reset();
+    }
+
+    // Dựng lại toàn bộ chỉ mục từ DB khi ứng dụng khởi động xong
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        lock.writeLock().lock();
+        try {
+            reset();
+            transaction.executeWithoutResult(status -> {
+                try (Stream<StudentExportRow> rows = studentRepository.streamAllForExport()) {
+                    rows.forEach(row -> add(row.getId(), row.getFullName(), row.getSchoolCategory()));
+                }
+            });
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Student autocomplete index built: {} students, {} tokens in {} ms",
+                size(), namePostings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Thêm hoặc thay thế học viên trong chỉ mục
+    public void index(Student student) {
+        if (!enabled || student == null || student.getId() == null) {
+            return;
+        }
+        Long id = student.getId();
+        String fullName = student.getFullName();
+        String schoolCategory = student.getSchoolCategory();
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                add(id, fullName, schoolCategory);
+                maybeCompact();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remove(Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                int doc = docById.remove(id);
+                if (doc >= 0) {
+                    markDeleted(doc);
+                    maybeCompact();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Trong transaction thì chỉ cập nhật sau khi commit (cùng lúc với luồng thay đổi và thông báo cho pod khác),
+    // rollback thì chỉ mục giữ nguyên
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Top-K học viên khớp truy vấn: các từ trước phải khớp nguyên token, từ cuối khớp theo tiền tố.
+    // Từ cuối được xét theo tầng điểm giảm dần (trùng hẳn token trong tên, tiền tố trong tên, tên trường), mỗi tầng
+    // chấm tối đa candidateLimit doc: doc tốt hơn thêm vào sau không bị các doc kém hơn thêm trước che mất,
+    // còn tiền tố ngắn ("n") không phải chấm hết mọi doc khớp trong lúc giữ read lock
+    public List<StudentSuggestion> suggest(String query, int limit) {
+        if (!ready || query == null || limit < 1) {
+            return List.of();
+        }
+        List<String> terms = tokenize(fold(query));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        Query q = new Query(terms, limit);
+
+        lock.readLock().lock();
+        try {
+            List<List<IntList>> exactLists = new ArrayList<>(q.exact.size());
+            for (String term : q.exact) {
+                List<IntList> lists = nameLists(term, false);
+                lists.addAll(schoolLists(term, false));
+                if (lists.isEmpty()) {
+                    return List.of();
+                }
+                exactLists.add(lists);
+            }
+            for (int tier = TIER_NAME_EXACT; tier <= TIER_SCHOOL; tier++) {
+                // Top-K đã đầy bằng doc có điểm cao hơn mọi doc của tầng này
+                if (q.topSize == limit && q.topScores[limit - 1] > maxScore(q, tier)) {
+                    break;
+                }
+                List<IntList> lastLists = switch (tier) {
+                    case TIER_NAME_EXACT -> nameLists(q.prefix, false);
+                    case TIER_NAME_PREFIX -> nameLists(q.prefix, true);
+                    default -> schoolLists(q.prefix, true);
+                };
+                if (lastLists.isEmpty()) {
+                    continue;
+                }
+                Cursor[] cursors = new Cursor[exactLists.size() + 1];
+                for (int i = 0; i < exactLists.size(); i++) {
+                    cursors[i] = new Cursor(exactLists.get(i));
+                }
+                cursors[exactLists.size()] = new Cursor(lastLists);
+                // Từ có ít doc nhất dẫn đường, các từ còn lại nhảy theo (leapfrog join)
+                Arrays.sort(cursors, (a, b) -> Long.compare(a.size, b.size));
+                intersect(cursors, q, tier);
+            }
+            return q.results();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Các posting list của token trong tên khớp term
+    private List<IntList> nameLists(String term, boolean prefix) {
+        List<IntList> lists = new ArrayList<>();
+        if (prefix) {
+            lists.addAll(namePostings.subMap(term, term + Character.MAX_VALUE).values());
+        } else if (namePostings.containsKey(term)) {
+            lists.add(namePostings.get(term));
+        }
+        return lists;
+    }
+
+    // Danh sách doc của các trường có token khớp term
+    private List<IntList> schoolLists(String term, boolean prefix) {
+        List<IntList> lists = new ArrayList<>();
+        Collection<IntList> schoolLists = prefix
+                ? schoolPostings.subMap(term, term + Character.MAX_VALUE).values()
+                : schoolPostings.containsKey(term) ? List.of(schoolPostings.get(term)) : List.of();
+        BitSet matchedSchools = new BitSet();
+        for (IntList ordinals : schoolLists) {
+            for (int i = 0; i < ordinals.size; i++) {
+                matchedSchools.set(ordinals.data[i]);
+            }
+        }
+        for (int school = matchedSchools.nextSetBit(0); school >= 0; school = matchedSchools.nextSetBit(school + 1)) {
+            lists.add(schoolDocs.get(school));
+        }
+        return lists;
+    }
+
+    // Giao các cursor, chấm điểm các doc của tầng khớp tất cả các từ cho tới khi đủ candidateLimit ứng viên
+    private void intersect(Cursor[] cursors, Query q, int tier) {
+        int matched = 0;
+        int candidate = cursors[0].seek(0);
+        while (candidate != Cursor.END && matched < candidateLimit) {
+            int next = candidate;
+            for (int i = 1; i < cursors.length && next == candidate; i++) {
+                next = cursors[i].seek(candidate);
+            }
+            if (next != candidate) {
+                candidate = next == Cursor.END ? Cursor.END : cursors[0].seek(next);
+                continue;
+            }
+            // Doc đã được xét ở tầng trước (posting list tiền tố chứa cả token trùng hẳn) thì bỏ qua
+            if (!deleted.get(candidate) && tier(candidate, q) == tier) {
+                int score = score(candidate, q);
+                if (score >= 0) {
+                    q.offer(candidate, score);
+                    matched++;
+                }
+            }
+            candidate = cursors[0].seek(candidate + 1);
+        }
+    }
+
+    // Tầng của doc theo cách từ cuối khớp: trùng hẳn token trong tên, tiền tố token trong tên, còn lại là tên trường
+    private int tier(int doc, Query q) {
+        int from = foldedStart(doc);
+        int to = from + foldedLength(doc);
+        if (containsToken(from, to, q.prefixBytes, true)) {
+            return TIER_NAME_EXACT;
+        }
+        return containsToken(from, to, q.prefixBytes, false) ? TIER_NAME_PREFIX : TIER_SCHOOL;
+    }
+
+    // Điểm cao nhất một doc của tầng có thể đạt (mọi từ trước khớp trong tên), cùng công thức với score()
+    private static int maxScore(Query q, int tier) {
+        int last = switch (tier) {
+            case TIER_NAME_EXACT -> 4 + 2;
+            case TIER_NAME_PREFIX -> 4;
+            default -> 2;
+        };
+        return q.exact.size() * 4 + last;
+    }
+
+    // -1 nếu doc không khớp; ưu tiên khớp trong tên và token trùng hẳn với từ cuối
+    private int score(int doc, Query q) {
+        String[] school = schools[doc] == NO_SCHOOL ? NO_TOKENS : schoolTokens.get(schools[doc]);
+        int from = foldedStart(doc);
+        int to = from + foldedLength(doc);
+        int nameHits = 0;
+        for (int i = 0; i < q.exact.size(); i++) {
+            if (containsToken(from, to, q.exactBytes[i], true)) {
+                nameHits++;
+            } else if (!containsString(school, q.exact.get(i), true)) {
+                return -1;
+            }
+        }
+        boolean exactLast;
+        if (containsToken(from, to, q.prefixBytes, false)) {
+            nameHits++;
+            exactLast = containsToken(from, to, q.prefixBytes, true);
+        } else if (containsString(school, q.prefix, false)) {
+            exactLast = containsString(school, q.prefix, true);
+        } else {
+            return -1;
+        }
+        return nameHits * 4 + (exactLast ? 2 : 0);
+    }
+
+    // Tìm token trong đoạn tên đã bỏ dấu [from, to) của vùng text, các token cách nhau bởi dấu cách
+    private boolean containsToken(int from, int to, byte[] term, boolean whole) {
+        int start = from;
+        while (start < to) {
+            int end = start;
+            while (end < to && text[end] != ' ') {
+                end++;
+            }
+            int length = end - start;
+            if (length >= term.length && (!whole || length == term.length)
+                    && Arrays.equals(text, start, start + term.length, term, 0, term.length)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static boolean containsString(String[] tokens, String term, boolean whole) {
+        for (String token : tokens) {
+            if (whole ? token.equals(term) : token.startsWith(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(long id, String fullName, String schoolCategory) {
+        int existing = docById.get(id);
+        if (existing >= 0) {
+            markDeleted(existing);
+        }
+        int doc = docCount++;
+        ensureCapacity(docCount);
+
+        List<String> nameTokens = tokenize(fold(fullName));
+        byte[] name = fullName != null ? fullName.getBytes(StandardCharsets.UTF_8) : EMPTY;
+        byte[] folded = String.join(" ", nameTokens).getBytes(StandardCharsets.UTF_8);
+        int nameLength = Math.min(name.length, MAX_TEXT_LENGTH);
+        int foldedLength = Math.min(folded.length, MAX_TEXT_LENGTH);
+        ensureTextCapacity(textSize + nameLength + foldedLength);
+        System.arraycopy(name, 0, text, textSize, nameLength);
+        System.arraycopy(folded, 0, text, textSize + nameLength, foldedLength);
+
+        int school = schoolOrdinal(schoolCategory);
+        ids[doc] = id;
+        textStarts[doc] = textSize;
+        textLengths[doc] = nameLength << 16 | foldedLength;
+        schools[doc] = school;
+        textSize += nameLength + foldedLength;
+        docById.put(id, doc);
+
+        for (String token : new LinkedHashSet<>(nameTokens)) {
+            namePostings.computeIfAbsent(token, t -> new IntList()).add(doc);
+        }
+        if (school != NO_SCHOOL) {
+            schoolDocs.get(school).add(doc);
+        }
+    }
+
+    private int schoolOrdinal(String schoolCategory) {
+        if (schoolCategory == null) {
+            return NO_SCHOOL;
+        }
+        return schoolOrdinals.computeIfAbsent(schoolCategory, value -> {
+            int ordinal = schoolValues.size();
+            String[] tokens = new LinkedHashSet<>(tokenize(fold(value))).toArray(new String[0]);
+            schoolValues.add(value);
+            schoolTokens.add(tokens);
+            schoolDocs.add(new IntList());
+            for (String token : tokens) {
+                schoolPostings.computeIfAbsent(token, t -> new IntList()).add(ordinal);
+            }
+            return ordinal;
+        });
+    }
+
+    private void markDeleted(int doc) {
+        deleted.set(doc);
+        deletedCount++;
+    }
+
+    private String name(int doc) {
+        return new String(text, textStarts[doc], textLengths[doc] >>> 16, StandardCharsets.UTF_8);
+    }
+
+    private int foldedStart(int doc) {
+        return textStarts[doc] + (textLengths[doc] >>> 16);
+    }
+
+    private int foldedLength(int doc) {
+        return textLengths[doc] & 0xFFFF;
+    }
+
+    // Dựng lại cấu trúc từ các doc còn sống khi tombstone chiếm quá nửa
+    private void maybeCompact() {
+        if (deletedCount < INITIAL_CAPACITY || deletedCount * 2 < docCount) {
+            return;
+        }
+        long[] oldIds = ids;
+        String[] liveNames = new String[docCount];
+        String[] liveSchools = new String[docCount];
+        BitSet oldDeleted = deleted;
+        int oldCount = docCount;
+        for (int doc = 0; doc < oldCount; doc++) {
+            if (!oldDeleted.get(doc)) {
+                liveNames[doc] = name(doc);
+                liveSchools[doc] = schools[doc] == NO_SCHOOL ? null : schoolValues.get(schools[doc]);
+            }
+        }
+
+        reset();
+        for (int doc = 0; doc < oldCount; doc++) {
+            if (!oldDeleted.get(doc)) {
+                add(oldIds[doc], liveNames[doc], liveSchools[doc]);
+            }
+        }
+    }
+
+    private void reset() {
+        ids = new long[INITIAL_CAPACITY];
+        textStarts = new int[INITIAL_CAPACITY];
+        textLengths = new int[INITIAL_CAPACITY];
+        schools = new int[INITIAL_CAPACITY];
+        text = new byte[INITIAL_CAPACITY * 32];
+        textSize = 0;
+        deleted = new BitSet();
+        docCount = 0;
+        deletedCount = 0;
+        docById = new LongIntMap(INITIAL_CAPACITY);
+        namePostings = new TreeMap<>();
+        schoolPostings = new TreeMap<>();
+        schoolValues.clear();
+        schoolTokens.clear();
+        schoolDocs.clear();
+        schoolOrdinals.clear();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, newLength);
+        textStarts = Arrays.copyOf(textStarts, newLength);
+        textLengths = Arrays.copyOf(textLengths, newLength);
+        schools = Arrays.copyOf(schools, newLength);
+    }
+
+    private void ensureTextCapacity(int capacity) {
+        if (capacity > text.length) {
+            text = Arrays.copyOf(text, Math.max(capacity, text.length + (text.length >> 1)));
+        }
+    }
+
+    // Bỏ dấu tiếng Việt (kể cả đ/Đ) và chuyển về chữ thường
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (c == 'đ' || c == 'Đ') {
+                c = 'd';
+            }
+            folded.append(Character.toLowerCase(c));
+        }
+        return folded.toString();
+    }
+
+    static List<String> tokenize(String folded) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean tokenChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private final class Query {
+        final List<String> exact;
+        final byte[][] exactBytes;
+        final String prefix;
+        final byte[] prefixBytes;
+        final int limit;
+        final int[] topDocs;
+        final int[] topScores;
+        int topSize;
+
+        Query(List<String> terms, int limit) {
+            this.exact = terms.subList(0, terms.size() - 1);
+            this.exactBytes = new byte[exact.size()][];
+            for (int i = 0; i < exact.size(); i++) {
+                exactBytes[i] = exact.get(i).getBytes(StandardCharsets.UTF_8);
+            }
+            this.prefix = terms.get(terms.size() - 1);
+            this.prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+            this.limit = limit;
+            this.topDocs = new int[limit];
+            this.topScores = new int[limit];
+        }
+
+        // Giữ top-K theo điểm giảm dần, cùng điểm thì tên ngắn hơn đứng trước
+        void offer(int doc, int score) {
+            int position = topSize;
+            while (position > 0 && better(doc, score, topDocs[position - 1], topScores[position - 1])) {
+                position--;
+            }
+            if (position >= limit) {
+                return;
+            }
+            int moved = Math.min(topSize, limit - 1) - position;
+            System.arraycopy(topDocs, position, topDocs, position + 1, moved);
+            System.arraycopy(topScores, position, topScores, position + 1, moved);
+            topDocs[position] = doc;
+            topScores[position] = score;
+            topSize = Math.min(topSize + 1, limit);
+        }
+
+        private boolean better(int doc, int score, int otherDoc, int otherScore) {
+            if (score != otherScore) {
+                return score > otherScore;
+            }
+            return (textLengths[doc] >>> 16) < (textLengths[otherDoc] >>> 16);
+        }
+
+        List<StudentSuggestion> results() {
+            List<StudentSuggestion> suggestions = new ArrayList<>(topSize);
+            for (int i = 0; i < topSize; i++) {
+                int doc = topDocs[i];
+                String school = schools[doc] == NO_SCHOOL ? null : schoolValues.get(schools[doc]);
+                suggestions.add(new StudentSuggestion(ids[doc], name(doc), school));
+            }
+            return suggestions;
+        }
+    }
+
+    // Con trỏ trên hợp của các posting list tăng dần, nhảy tới doc >= target bằng galloping search
+    private static final class Cursor {
+        static final int END = Integer.MAX_VALUE;
+
+        final IntList[] lists;
+        final int[] positions;
+        final long size;
+
+        Cursor(List<IntList> lists) {
+            this.lists = lists.toArray(new IntList[0]);
+            this.positions = new int[this.lists.length];
+            long total = 0;
+            for (IntList list : this.lists) {
+                total += list.size;
+            }
+            this.size = total;
+        }
+
+        int seek(int target) {
+            int min = END;
+            for (int i = 0; i < lists.length; i++) {
+                IntList list = lists[i];
+                int position = gallop(list, positions[i], target);
+                positions[i] = position;
+                if (position < list.size && list.data[position] < min) {
+                    min = list.data[position];
+                }
+            }
+            return min;
+        }
+
+        // Vị trí đầu tiên từ from có giá trị >= target
+        private static int gallop(IntList list, int from, int target) {
+            int[] data = list.data;
+            if (from >= list.size || data[from] >= target) {
+                return from;
+            }
+            int step = 1;
+            int low = from;
+            int high = from + 1;
+            while (high < list.size && data[high] < target) {
+                low = high;
+                step <<= 1;
+                high = from + step;
+            }
+            high = Math.min(high, list.size);
+            // data[low] < target, data[high] >= target hoặc high == size
+            while (low + 1 < high) {
+                int mid = (low + high) >>> 1;
+                if (data[mid] < target) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+            return high;
+        }
+    }
+
+    // Danh sách int tăng dần, không boxing
+    private static final class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size << 1);
+            }
+            data[size++] = value;
+        }
+    }
+
+    // Bảng băm địa chỉ mở long -> int (linear probing, xóa bằng dịch lùi), tránh boxing Long/Integer
+    private static final class LongIntMap {
+        private static final long FREE = Long.MIN_VALUE;
+
+        private long[] keys;
+        private int[] values;
+        private int mask;
+        private int size;
+
+        LongIntMap(int capacity) {
+            allocate(Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1);
+        }
+
+        int get(long key) {
+            int index = slot(key);
+            while (keys[index] != FREE) {
+                if (keys[index] == key) {
+                    return values[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length << 1);
+            }
+            int index = slot(key);
+            while (keys[index] != FREE) {
+                if (keys[index] == key) {
+                    values[index] = value;
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+            size++;
+        }
+
+        int remove(long key) {
+            int index = slot(key);
+            while (keys[index] != key) {
+                if (keys[index] == FREE) {
+                    return -1;
+                }
+                index = (index + 1) & mask;
+            }
+            int removed = values[index];
+            int gap = index;
+            int i = index;
+            while (true) {
+                i = (i + 1) & mask;
+                if (keys[i] == FREE) {
+                    break;
+                }
+                int home = slot(keys[i]);
+                boolean movable = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+                if (movable) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    gap = i;
+                }
+            }
+            keys[gap] = FREE;
+            size--;
+            return removed;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(capacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            values = new int[capacity];
+            mask = capacity - 1;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.StudentChangeEvent;
+import com.example.demo.dto.StudentView;
+import com.example.demo.model.Student;
+import com.example.demo.security.TokenRevocationService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Luồng thay đổi học viên cho GET /api/students/changes (Server-Sent Events).
+// Kết nối rảnh không giữ thread (async servlet); mỗi subscriber có hàng đợi giới hạn, được gửi trên virtual
+// thread riêng nên client chậm không chặn luồng ghi. Hàng đợi đầy thì ngắt kết nối, client kết nối lại với
+// Last-Event-ID và nhận lại từ log trong bộ nhớ (log-size sự kiện gần nhất), quá log thì nhận sự kiện reset.
+@Component
+public class StudentChangeFeed {
+
+    public static final String RESET = "reset";
+    private static final String RESET_DATA = "{\"type\":\"" + RESET + "\"}";
+
+    // Phần tử đánh dấu gửi comment heartbeat, không nằm trong log
+    private static final Entry HEARTBEAT = new Entry(-1, null, null);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Value("${student.changes.log-size:1000}")
+    private int logSize;
+
+    @Value("${student.changes.subscriber-buffer:256}")
+    private int subscriberBuffer;
+
+    @Value("${student.changes.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${student.changes.heartbeat-interval:20s}")
+    private Duration heartbeatInterval;
+
+    @Value("${student.changes.max-connection:30m}")
+    private Duration maxConnection;
+
+    // Tiền tố id sự kiện theo lần khởi động: Last-Event-ID của lần chạy hoặc pod khác không dùng được với log này
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // Ghi log và đưa vào hàng đợi của subscriber trong cùng khóa để sự kiện replay và sự kiện mới không lệch nhau
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Entry> log = new ArrayDeque<>();
+    private long lastSeq;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private ScheduledExecutorService heartbeats;
+    private Counter rejected;
+    private Counter evictedSlow;
+    private Counter evictedRevoked;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("student_changes_subscribers", subscribers, Set::size)
+                .description("Open connections on the student change feed")
+                .register(meterRegistry);
+        rejected = Counter.builder("student_changes_rejected_total")
+                .description("Change feed connections refused because max-subscribers was reached")
+                .register(meterRegistry);
+        evictedSlow = Counter.builder("student_changes_evicted_total")
+                .description("Change feed connections closed by the server")
+                .tag("reason", "slow_consumer")
+                .register(meterRegistry);
+        evictedRevoked = Counter.builder("student_changes_evicted_total")
+                .description("Change feed connections closed by the server")
+                .tag("reason", "token_revoked")
+                .register(meterRegistry);
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "student-changes-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = heartbeatInterval.toMillis();
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        subscribers.forEach(this::close);
+        senders.shutdown();
+    }
+
+    public void created(Student student) {
+        publish(StudentChangeEvent.CREATED, student.getId(), view(student));
+    }
+
+    public void updated(Student student) {
+        publish(StudentChangeEvent.UPDATED, student.getId(), view(student));
+    }
+
+    public void deleted(Long id) {
+        publish(StudentChangeEvent.DELETED, id, null);
+    }
+
+    // Không gửi chi tiết từng thay đổi (một lô bulk, mất thông báo từ pod khác): mọi client tải lại danh sách
+    public void reset() {
+        append(RESET, RESET_DATA);
+    }
+
+    // Trong transaction thì chỉ phát sau khi commit, rollback thì không phát
+    private void publish(String type, Long id, StudentView student) {
+        String data;
+        try {
+            // Serialize một lần, dùng chung cho mọi subscriber
+            data = objectMapper.writeValueAsString(new StudentChangeEvent(type, id, student));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(type, data);
+                }
+            });
+        } else {
+            append(type, data);
+        }
+    }
+
+    private void append(String name, String data) {
+        lock.lock();
+        try {
+            Entry entry = new Entry(++lastSeq, name, data);
+            log.addLast(entry);
+            if (log.size() > logSize) {
+                log.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                enqueue(subscriber, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // null khi đã đủ max-subscribers. Kết nối bị đóng khi access token hết hạn để client kết nối lại với token mới
+    public SseEmitter subscribe(String lastEventId, Claims claims) {
+        if (subscribers.size() >= maxSubscribers) {
+            rejected.increment();
+            return null;
+        }
+        long timeout = maxConnection.toMillis();
+        if (claims != null && claims.getExpiration() != null) {
+            timeout = Math.min(timeout, Math.max(claims.getExpiration().getTime() - System.currentTimeMillis(), 1));
+        }
+        SseEmitter emitter = new SseEmitter(timeout);
+        Subscriber subscriber;
+        lock.lock();
+        try {
+            List<Entry> replay = replay(lastEventId);
+            subscriber = new Subscriber(emitter, claims, subscriberBuffer + replay.size());
+            replay.forEach(subscriber.queue::offer);
+            subscribers.add(subscriber);
+        } finally {
+            lock.unlock();
+        }
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        schedule(subscriber);
+        return emitter;
+    }
+
+    // Các sự kiện sau lastEventId; id không còn trong log (quá cũ, lần chạy hoặc pod khác) thì một sự kiện
+    // reset mang id hiện tại: client tải lại danh sách rồi tiếp tục từ đó
+    private List<Entry> replay(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return List.of();
+        }
+        long seq = parseSeq(lastEventId.trim());
+        long oldest = log.isEmpty() ? lastSeq + 1 : log.peekFirst().seq();
+        if (seq < oldest - 1 || seq > lastSeq) {
+            return List.of(new Entry(lastSeq, RESET, RESET_DATA));
+        }
+        List<Entry> missed = new ArrayList<>();
+        for (Entry entry : log) {
+            if (entry.seq() > seq) {
+                missed.add(entry);
+            }
+        }
+        return missed;
+    }
+
+    private long parseSeq(String eventId) {
+        String prefix = epoch + "-";
+        if (!eventId.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            // Cùng kiểm tra thu hồi như JwtAuthenticationFilter (Bloom filter, gần như không chạm DB)
+            if (subscriber.claims != null && tokenRevocationService.isRevoked(subscriber.claims)) {
+                evictedRevoked.increment();
+                close(subscriber);
+            } else {
+                enqueue(subscriber, HEARTBEAT);
+            }
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, Entry entry) {
+        if (subscriber.closed) {
+            return;
+        }
+        if (!subscriber.queue.offer(entry)) {
+            evictedSlow.increment();
+            close(subscriber);
+            return;
+        }
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    // Mỗi subscriber có nhiều nhất một virtual thread gửi; write bị chặn (client không đọc) chỉ giữ thread đó
+    private void drain(Subscriber subscriber) {
+        do {
+            Entry entry;
+            while (!subscriber.closed && (entry = subscriber.queue.poll()) != null) {
+                try {
+                    if (entry == HEARTBEAT) {
+                        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        subscriber.emitter.send(SseEmitter.event()
+                                .id(epoch + "-" + entry.seq())
+                                .name(entry.name())
+                                .data(entry.data(), MediaType.APPLICATION_JSON));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Client đã ngắt hoặc emitter đã đóng
+                    remove(subscriber);
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+        } while (!subscriber.closed && !subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    // Không gọi complete() trên luồng ghi: có thể phải chờ một lần gửi đang bị chặn
+    private void close(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            senders.execute(subscriber.emitter::complete);
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscriber.queue.clear();
+        return subscribers.remove(subscriber);
+    }
+
+    private static StudentView view(Student student) {
+        return new StudentView(student.getId(), student.getFullName(), student.getBirthDate(),
+                student.getSchoolCategory(), student.getVersion());
+    }
+
+    private record Entry(long seq, String name, String data) {
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Claims claims;
+        private final BlockingQueue<Entry> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, Claims claims, int capacity) {
+            this.emitter = emitter;
+            this.claims = claims;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
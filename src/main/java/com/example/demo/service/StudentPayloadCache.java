@@ -0,0 +1,79 @@
+package com.example.demo.service;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.SerializedPayload;
+import com.example.demo.metrics.RequestTimings;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Cache byte JSON (và gzip) của danh sách/tìm kiếm học viên. Khóa gồm version của bảng (ETag) đọc trước khi
+// tải, loader phải dùng các truy vấn nhận cùng version đó (khóa cache bên trong cũng có version) thì body dưới
+// một ETag không cũ hơn ETag đó. StudentService vẫn xóa cache khi ghi để giải phóng bộ nhớ.
+@Component
+public class StudentPayloadCache {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Cùng ngưỡng với nén của Tomcat (server.compression.min-response-size)
+    @Value("${server.compression.min-response-size:2KB}")
+    private DataSize minCompressSize;
+
+    public SerializedPayload get(Object key, Supplier<SerializedPayload> loader) {
+        Cache cache = cacheManager.getCache(CacheConfig.STUDENT_PAYLOADS);
+        try {
+            return cache.get(key, loader::get);
+        } catch (Cache.ValueRetrievalException e) {
+            // Lỗi của loader (ví dụ IllegalArgumentException khi tham số sai) được ném lại nguyên dạng
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Serialize bằng ObjectMapper của ứng dụng (giống converter JSON) và nén một lần ở mức cao nhất,
+    // chi phí nén được chia cho mọi lần đọc lại từ cache
+    public SerializedPayload serialize(Object body, String nextCursor) {
+        RequestTimings.start(RequestTimings.Phase.SERIALIZATION);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            byte[] gzip = json.length >= minCompressSize.toBytes() ? gzip(json) : null;
+            return new SerializedPayload(json, gzip, nextCursor);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            RequestTimings.stop(RequestTimings.Phase.SERIALIZATION);
+        }
+    }
+
+    public static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -1,61 +1,534 @@
 package com.example.demo.service;
 
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.BulkStudentResponse;
+import com.example.demo.dto.BulkStudentResult;
+import com.example.demo.dto.StudentChangeEvent;
+import com.example.demo.dto.StudentExportRow;
+import com.example.demo.dto.StudentPageResponse;
+import com.example.demo.dto.StudentSuggestion;
+import com.example.demo.dto.StudentView;
 import com.example.demo.model.Student;
+import com.example.demo.model.StudentChangeCounter;
+import com.example.demo.repository.StudentChangeCounterRepository;
 import com.example.demo.repository.StudentRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 public class StudentService {
     
     @Autowired
     private StudentRepository studentRepository;
+
+    @Autowired
+    private StudentChangeCounterRepository changeCounterRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private StudentAutocompleteIndex autocompleteIndex;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private StudentChangeFeed changeFeed;
+
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    public static final String SORT_ID = "id";
+    public static final String SORT_FULL_NAME = "fullName";
+
+    public static final String EXPORT_NDJSON = "ndjson";
+    public static final String EXPORT_CSV = "csv";
+
+    @Value("${student.export.flush-rows:500}")
+    private int exportFlushRows;
+
+    @Value("${student.bulk.batch-size:500}")
+    private int bulkBatchSize;
+
+    public static final String SEARCH_MODE_TRIGRAM = "trigram";
+    public static final String SEARCH_MODE_LIKE = "like";
+
+    // trigram: cần pg_trgm/unaccent (PostgreSQL); like: truy vấn LIKE của JPA, dùng cho DB khác
+    @Value("${student.search.mode:trigram}")
+    private String searchMode;
+
+    @Value("${student.search.default-limit:100}")
+    private int defaultSearchLimit;
+
+    @Value("${student.search.max-limit:500}")
+    private int maxSearchLimit;
+
+    @Value("${student.autocomplete.default-limit:10}")
+    private int defaultAutocompleteLimit;
+
+    @Value("${student.autocomplete.max-limit:50}")
+    private int maxAutocompleteLimit;
+
+    @Value("${student.page.default-limit:50}")
+    private int defaultPageLimit;
+
+    @Value("${student.page.max-limit:500}")
+    private int maxPageLimit;
+
+    @Value("${student.page.legacy-limit:1000}")
+    private int legacyLimit;
     
-    // Lấy tất cả học viên
-    public List<Student> getAllStudents() {
-        return studentRepository.findAll();
+    // Các truy vấn danh sách/tìm kiếm nhận version (getCollectionVersion) người gọi đã đọc trước đó, làm một phần
+    // khóa cache: dữ liệu dưới version V luôn được đọc sau khi V có, nên ETag mới không bao giờ đi kèm trang cũ
+
+    // Lấy tất cả học viên (chế độ tương thích: trả về tối đa legacyLimit bản ghi đầu tiên theo id)
+    @Cacheable(cacheNames = CacheConfig.STUDENT_PAGES, key = "{'legacy', #version}", sync = true)
+    @Transactional(readOnly = true)
+    public List<StudentView> getAllStudents(long version) {
+        return studentRepository.findAllByOrderByIdAsc(Limit.of(legacyLimit));
+    }
+
+    // Lấy danh sách học viên theo trang (keyset pagination trên id hoặc (full_name, id))
+    @Cacheable(cacheNames = CacheConfig.STUDENT_PAGES, key = "{#cursor, #limit, #sort, #version}", sync = true)
+    @Transactional(readOnly = true)
+    public StudentPageResponse getStudentsPage(String cursor, Integer limit, String sort, long version) {
+        int pageSize = resolvePageLimit(limit);
+        // Lấy dư 1 bản ghi để biết còn trang tiếp theo hay không
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<StudentView> rows;
+        String sortKey;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor);
+            sortKey = parts[0];
+            if (sort != null && !sort.equals(sortKey)) {
+                throw new IllegalArgumentException("Cursor không khớp với tham số sort: " + sort);
+            }
+            Long lastId = parseId(parts[1]);
+            if (SORT_FULL_NAME.equals(sortKey)) {
+                rows = studentRepository.findAfterFullName(parts[2], lastId, fetchLimit);
+            } else {
+                rows = studentRepository.findByIdGreaterThanOrderByIdAsc(lastId, fetchLimit);
+            }
+        } else {
+            sortKey = resolveSort(sort);
+            if (SORT_FULL_NAME.equals(sortKey)) {
+                rows = studentRepository.findAllByOrderByFullNameAscIdAsc(fetchLimit);
+            } else {
+                rows = studentRepository.findAllByOrderByIdAsc(fetchLimit);
+            }
+        }
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = encodeCursor(sortKey, rows.get(pageSize - 1));
+        }
+        return new StudentPageResponse(rows, nextCursor, pageSize);
+    }
+
+    // Cursor cho trang kế tiếp sau danh sách tương thích, null nếu không còn dữ liệu
+    public String nextCursorAfter(List<StudentView> students) {
+        if (students.size() < legacyLimit) {
+            return null;
+        }
+        return encodeCursor(SORT_ID, students.get(students.size() - 1));
+    }
+
+    // Export toàn bộ học viên dạng NDJSON/CSV, đọc từng dòng từ cursor JDBC và flush theo lô
+    @Transactional(readOnly = true)
+    public void exportStudents(String format, OutputStream out) throws IOException {
+        try (Stream<StudentExportRow> rows = studentRepository.streamAllForExport()) {
+            if (EXPORT_CSV.equals(format)) {
+                writeCsv(rows.iterator(), out);
+            } else {
+                writeNdjson(rows.iterator(), out);
+            }
+        }
+    }
+
+    private void writeNdjson(Iterator<StudentExportRow> rows, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        // ObjectMapper mặc định flush sau mỗi writeValue (với gzip là một lần sync flush mỗi dòng): tắt để chỉ flush theo lô
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        int count = 0;
+        while (rows.hasNext()) {
+            writer.writeValue(generator, rows.next());
+            generator.writeRaw('\n');
+            if (++count % exportFlushRows == 0) {
+                generator.flush();
+            }
+        }
+        generator.flush();
+    }
+
+    private void writeCsv(Iterator<StudentExportRow> rows, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write("id,full_name,birth_date,school_category\n");
+        int count = 0;
+        while (rows.hasNext()) {
+            StudentExportRow row = rows.next();
+            writer.write(String.valueOf(row.getId()));
+            writer.write(',');
+            writer.write(csvField(row.getFullName()));
+            writer.write(',');
+            writer.write(row.getBirthDate() != null ? row.getBirthDate().toString() : "");
+            writer.write(',');
+            writer.write(csvField(row.getSchoolCategory()));
+            writer.write('\n');
+            if (++count % exportFlushRows == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private int resolvePageLimit(Integer limit) {
+        if (limit == null) {
+            return defaultPageLimit;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit phải lớn hơn 0");
+        }
+        return Math.min(limit, maxPageLimit);
+    }
+
+    private String resolveSort(String sort) {
+        if (sort == null || SORT_ID.equals(sort)) {
+            return SORT_ID;
+        }
+        if (SORT_FULL_NAME.equals(sort)) {
+            return SORT_FULL_NAME;
+        }
+        throw new IllegalArgumentException("Giá trị sort không hợp lệ: " + sort);
+    }
+
+    // Cursor dạng base64url của "sort:id[:fullName]"
+    private String encodeCursor(String sortKey, StudentView last) {
+        String raw = SORT_FULL_NAME.equals(sortKey)
+                ? sortKey + ":" + last.id() + ":" + last.fullName()
+                : sortKey + ":" + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+        String[] parts = raw.split(":", 3);
+        boolean valid = (SORT_ID.equals(parts[0]) && parts.length == 2)
+                || (SORT_FULL_NAME.equals(parts[0]) && parts.length == 3);
+        if (!valid) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+        return parts;
+    }
+
+    private Long parseId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
     }
     
     // Lấy học viên theo ID
-    public Optional<Student> getStudentById(Long id) {
-        return studentRepository.findById(id);
+    @Cacheable(cacheNames = CacheConfig.STUDENTS, key = "#id", sync = true)
+    @Transactional(readOnly = true)
+    public Optional<StudentView> getStudentById(Long id) {
+        return studentRepository.findViewById(id);
     }
     
     // Tìm kiếm theo tên
-    public List<Student> searchByName(String name) {
-        return studentRepository.findByFullNameContainingIgnoreCase(name);
+    @Cacheable(cacheNames = CacheConfig.STUDENT_SEARCH, key = "{'name', #name, #limit, #version}", sync = true)
+    @Transactional(readOnly = true)
+    public List<StudentView> searchByName(String name, Integer limit, long version) {
+        int max = resolveSearchLimit(limit);
+        if (SEARCH_MODE_TRIGRAM.equals(searchMode)) {
+            return studentRepository.searchByFullNameRanked(escapeLike(name), name, max);
+        }
+        return studentRepository.findByFullNameContainingIgnoreCase(name, Limit.of(max));
     }
     
     // Tìm kiếm theo trường
-    public List<Student> searchBySchool(String school) {
-        return studentRepository.findBySchoolCategoryContainingIgnoreCase(school);
+    @Cacheable(cacheNames = CacheConfig.STUDENT_SEARCH, key = "{'school', #school, #limit, #version}", sync = true)
+    @Transactional(readOnly = true)
+    public List<StudentView> searchBySchool(String school, Integer limit, long version) {
+        int max = resolveSearchLimit(limit);
+        if (SEARCH_MODE_TRIGRAM.equals(searchMode)) {
+            return studentRepository.searchBySchoolCategoryRanked(escapeLike(school), school, max);
+        }
+        return studentRepository.findBySchoolCategoryContainingIgnoreCase(school, Limit.of(max));
+    }
+
+    // Tìm kiếm đồng thời theo tên và trường, kết quả khớp nhất đứng trước
+    @Cacheable(cacheNames = CacheConfig.STUDENT_SEARCH, key = "{'all', #query, #limit, #version}", sync = true)
+    @Transactional(readOnly = true)
+    public List<StudentView> search(String query, Integer limit, long version) {
+        int max = resolveSearchLimit(limit);
+        if (SEARCH_MODE_TRIGRAM.equals(searchMode)) {
+            return studentRepository.searchRanked(escapeLike(query), query, max);
+        }
+        return studentRepository.findByFullNameContainingIgnoreCaseOrSchoolCategoryContainingIgnoreCase(
+                query, query, Limit.of(max));
+    }
+
+    private int resolveSearchLimit(Integer limit) {
+        if (limit == null) {
+            return defaultSearchLimit;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit phải lớn hơn 0");
+        }
+        return Math.min(limit, maxSearchLimit);
+    }
+
+    private String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    // Gợi ý học viên theo tiền tố từ chỉ mục trong bộ nhớ, không truy vấn DB
+    public List<StudentSuggestion> autocomplete(String query, Integer limit) {
+        int max = limit == null ? defaultAutocompleteLimit : Math.min(Math.max(limit, 1), maxAutocompleteLimit);
+        return autocompleteIndex.suggest(query, max);
+    }
+    
+    // Phiên bản hiện tại của cả bảng students, làm ETag cho danh sách mà không cần tải entity
+    @Transactional(readOnly = true)
+    public long getCollectionVersion() {
+        return changeCounterRepository.findSeq(StudentChangeCounter.STUDENTS).orElse(0L);
+    }
+
+    // Gọi trong transaction của thao tác ghi để ETag danh sách chỉ đổi khi dữ liệu đã commit
+    private void markChanged() {
+        if (changeCounterRepository.increment(StudentChangeCounter.STUDENTS) == 0) {
+            changeCounterRepository.save(new StudentChangeCounter(StudentChangeCounter.STUDENTS, 1));
+        }
     }
     
     // Thêm học viên mới
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.STUDENTS, key = "#result.id"),
+            @CacheEvict(cacheNames = {CacheConfig.STUDENT_PAGES, CacheConfig.STUDENT_SEARCH, CacheConfig.STUDENT_PAYLOADS}, allEntries = true)})
     public Student saveStudent(Student student) {
-        return studentRepository.save(student);
+        Student saved = studentRepository.save(student);
+        markChanged();
+        autocompleteIndex.index(saved);
+        changeFeed.created(saved);
+        invalidationBus.studentChanged(StudentChangeEvent.CREATED, saved.getId());
+        return saved;
     }
     
-    // Cập nhật học viên
-    public Student updateStudent(Long id, Student studentDetails) {
+    // Cập nhật học viên. expectedVersions (từ If-Match) khác null thì version hiện tại phải nằm trong đó,
+    // nếu không (hoặc có người khác vừa ghi) ném OptimisticLockingFailureException
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.STUDENTS, key = "#id"),
+            @CacheEvict(cacheNames = {CacheConfig.STUDENT_PAGES, CacheConfig.STUDENT_SEARCH, CacheConfig.STUDENT_PAYLOADS}, allEntries = true)})
+    public Student updateStudent(Long id, Student studentDetails, Set<Long> expectedVersions) {
         Optional<Student> optionalStudent = studentRepository.findById(id);
         if (optionalStudent.isPresent()) {
             Student student = optionalStudent.get();
+            if (expectedVersions != null && !expectedVersions.contains(student.getVersion())) {
+                throw new OptimisticLockingFailureException("Học viên " + id + " đã thay đổi, version hiện tại: "
+                        + student.getVersion());
+            }
             student.setFullName(studentDetails.getFullName());
             student.setBirthDate(studentDetails.getBirthDate());
             student.setSchoolCategory(studentDetails.getSchoolCategory());
-            return studentRepository.save(student);
+            // saveAndFlush để version mới có trong kết quả trả về (và trong ETag)
+            Student saved = studentRepository.saveAndFlush(student);
+            markChanged();
+            autocompleteIndex.index(saved);
+            changeFeed.updated(saved);
+            invalidationBus.studentChanged(StudentChangeEvent.UPDATED, saved.getId());
+            return saved;
         }
         throw new RuntimeException("Không tìm thấy học viên với ID: " + id);
     }
     
+    // Thêm/cập nhật hàng loạt: mỗi lô bulkBatchSize bản ghi là một transaction, INSERT được gom batch JDBC.
+    // Bản ghi có id đã tồn tại thì cập nhật, còn lại thêm mới. Lô lỗi không ảnh hưởng các lô đã commit.
+    public BulkStudentResponse bulkUpsert(Iterator<Student> students) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        BulkStudentResponse response = new BulkStudentResponse();
+        List<Student> chunk = new ArrayList<>(bulkBatchSize);
+        List<Integer> indexes = new ArrayList<>(bulkBatchSize);
+        int index = 0;
+        while (true) {
+            Student student;
+            try {
+                if (!students.hasNext()) {
+                    break;
+                }
+                student = students.next();
+            } catch (RuntimeException e) {
+                // Body hỏng giữa chừng (MappingIterator không đọc tiếp được): dừng ở đây, vẫn ghi và trả kết quả các bản ghi trước đó
+                response.setError("Bản ghi " + index + " không hợp lệ: " + e.getMessage());
+                break;
+            }
+            if (student == null || !StringUtils.hasText(student.getFullName())) {
+                response.add(new BulkStudentResult(index++, student != null ? student.getId() : null,
+                        BulkStudentResult.FAILED, "fullName là bắt buộc"));
+                continue;
+            }
+            chunk.add(student);
+            indexes.add(index++);
+            if (chunk.size() == bulkBatchSize) {
+                writeChunk(transaction, chunk, indexes, response);
+                chunk.clear();
+                indexes.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(transaction, chunk, indexes, response);
+        }
+        response.getResults().sort(Comparator.comparingInt(BulkStudentResult::getIndex));
+        return response;
+    }
+
+    private void writeChunk(TransactionTemplate transaction, List<Student> chunk, List<Integer> indexes,
+                            BulkStudentResponse response) {
+        List<Student> written = new ArrayList<>(chunk.size());
+        try {
+            List<BulkStudentResult> results = transaction.execute(status -> {
+                Set<Long> ids = new HashSet<>();
+                for (Student student : chunk) {
+                    if (student.getId() != null) {
+                        ids.add(student.getId());
+                    }
+                }
+                Map<Long, Student> existing = new HashMap<>();
+                if (!ids.isEmpty()) {
+                    studentRepository.findAllById(ids).forEach(s -> existing.put(s.getId(), s));
+                }
+
+                written.clear();
+                boolean[] updated = new boolean[chunk.size()];
+                for (int i = 0; i < chunk.size(); i++) {
+                    Student input = chunk.get(i);
+                    Student target = input.getId() != null ? existing.get(input.getId()) : null;
+                    if (target != null) {
+                        target.setFullName(input.getFullName());
+                        target.setBirthDate(input.getBirthDate());
+                        target.setSchoolCategory(input.getSchoolCategory());
+                        updated[i] = true;
+                    } else {
+                        // Persist bản sao: id của input giữ nguyên cho kết quả FAILED nếu lô bị rollback
+                        target = new Student();
+                        target.setFullName(input.getFullName());
+                        target.setBirthDate(input.getBirthDate());
+                        target.setSchoolCategory(input.getSchoolCategory());
+                        entityManager.persist(target);
+                    }
+                    written.add(target);
+                }
+                markChanged();
+                entityManager.flush();
+                entityManager.clear();
+
+                List<BulkStudentResult> chunkResults = new ArrayList<>(chunk.size());
+                for (int i = 0; i < written.size(); i++) {
+                    chunkResults.add(new BulkStudentResult(indexes.get(i), written.get(i).getId(),
+                            updated[i] ? BulkStudentResult.UPDATED : BulkStudentResult.CREATED, null));
+                }
+                return chunkResults;
+            });
+            results.forEach(response::add);
+            Cache studentCache = cacheManager.getCache(CacheConfig.STUDENTS);
+            for (int i = 0; i < written.size(); i++) {
+                Student student = written.get(i);
+                autocompleteIndex.index(student);
+                // Lô đã commit nên phát ngay, trước khi xóa cache (lần tải lại sau đó đọc primary)
+                invalidationBus.studentChanged(BulkStudentResult.UPDATED.equals(results.get(i).getStatus())
+                        ? StudentChangeEvent.UPDATED : StudentChangeEvent.CREATED, student.getId());
+                studentCache.evict(student.getId());
+            }
+            // Mỗi lô đã commit làm đổi version: xóa ngay, không chờ hết cả luồng upload
+            cacheManager.getCache(CacheConfig.STUDENT_PAGES).clear();
+            cacheManager.getCache(CacheConfig.STUDENT_SEARCH).clear();
+            cacheManager.getCache(CacheConfig.STUDENT_PAYLOADS).clear();
+            // Một sự kiện reset cho cả lô: mỗi dòng một sự kiện sẽ làm tràn subscriber-buffer và ngắt mọi client
+            changeFeed.reset();
+        } catch (RuntimeException e) {
+            for (int i = 0; i < chunk.size(); i++) {
+                response.add(new BulkStudentResult(indexes.get(i), chunk.get(i).getId(),
+                        BulkStudentResult.FAILED, e.getMessage()));
+            }
+        }
+    }
+    
     // Xóa học viên
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.STUDENTS, key = "#id"),
+            @CacheEvict(cacheNames = {CacheConfig.STUDENT_PAGES, CacheConfig.STUDENT_SEARCH, CacheConfig.STUDENT_PAYLOADS}, allEntries = true)})
+    @Transactional
     public boolean deleteStudent(Long id) {
         if (studentRepository.existsById(id)) {
             studentRepository.deleteById(id);
+            markChanged();
+            autocompleteIndex.remove(id);
+            changeFeed.deleted(id);
+            invalidationBus.studentChanged(StudentChangeEvent.DELETED, id);
             return true;
         }
         return false;
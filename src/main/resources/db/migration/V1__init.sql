@@ -1,9 +1,14 @@
+-- Schema và dữ liệu ban đầu (trước đây là init.sql), Flyway chạy khi ứng dụng khởi động.
+-- DB đã khởi tạo từ init.sql được baseline ở V1 (spring.flyway.baseline-on-migrate), các bản sau chạy tiếp
 CREATE TABLE students (
     id BIGSERIAL PRIMARY KEY,
     full_name VARCHAR(255) NOT NULL,
     birth_date DATE,
-    school_category VARCHAR(500)
+    school_category VARCHAR(500),
+    version BIGINT NOT NULL DEFAULT 0
 );
+-- Hibernate dùng pooled optimizer với allocationSize = 50 cho students.id
+ALTER SEQUENCE students_id_seq INCREMENT BY 50;
 CREATE TABLE roles (
     id BIGSERIAL PRIMARY KEY,
     name VARCHAR(50) NOT NULL UNIQUE
@@ -23,8 +28,45 @@ CREATE TABLE user_roles (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (role_id) REFERENCES roles(id) ON DELETE CASCADE
 );
+-- Bộ đếm thay đổi của bảng students, làm ETag cho GET /api/students
+CREATE TABLE student_change_counter (
+    id INTEGER PRIMARY KEY,
+    seq BIGINT NOT NULL
+);
+INSERT INTO student_change_counter (id, seq) VALUES (1, 0);
+-- Bucket rate limit dùng chung giữa các pod (rate-limit.backend=jdbc)
+CREATE TABLE rate_limit_buckets (
+    bucket_key VARCHAR(300) PRIMARY KEY,
+    full_at BIGINT NOT NULL,
+    version BIGINT NOT NULL
+);
+-- Refresh token (chỉ lưu SHA-256) và id access token/phiên đã thu hồi
+CREATE TABLE refresh_tokens (
+    id BIGSERIAL PRIMARY KEY,
+    token_hash VARCHAR(64) NOT NULL UNIQUE,
+    username VARCHAR(255) NOT NULL,
+    family_id VARCHAR(36) NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    rotated_at TIMESTAMP WITH TIME ZONE,
+    revoked BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+CREATE INDEX idx_refresh_tokens_family_id ON refresh_tokens(family_id);
+CREATE TABLE revoked_tokens (
+    id VARCHAR(36) PRIMARY KEY,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
 CREATE INDEX idx_students_full_name ON students(full_name);
 CREATE INDEX idx_students_school_category ON students(school_category);
+CREATE INDEX idx_students_full_name_id ON students(full_name, id);
+-- Tìm kiếm không dấu theo tên/trường (xem migration_student_search.sql)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS unaccent;
+CREATE OR REPLACE FUNCTION f_unaccent(text) RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+AS $$ SELECT public.unaccent('public.unaccent'::regdictionary, $1) $$;
+CREATE INDEX idx_students_full_name_trgm ON students USING gin (f_unaccent(lower(full_name)) gin_trgm_ops);
+CREATE INDEX idx_students_school_category_trgm ON students USING gin (f_unaccent(lower(school_category)) gin_trgm_ops);
 CREATE INDEX idx_users_username ON users(username);
 CREATE INDEX idx_user_roles_user_id ON user_roles(user_id);
 CREATE INDEX idx_user_roles_role_id ON user_roles(role_id);
@@ -35,7 +77,7 @@ INSERT INTO roles (name) VALUES
 -- Thêm dữ liệu users (password được encode bằng BCrypt)
 -- Password cho tất cả user là "password123"
 -- BCrypt hash của "password123" là: $2a$10$XQOj2kpyI9UUcfbq1tA3PuP6eiB0pHEIzfTk4Wkn8LqNr7vHJOKCW
-$2a$10$B8tC2TEshD.iRk9.fUK1r.jW5LKpD8U.9Jufc0ZnUAwoe9IruQ5Qm
+-- Hash đang dùng: $2a$10$B8tC2TEshD.iRk9.fUK1r.jW5LKpD8U.9Jufc0ZnUAwoe9IruQ5Qm
 INSERT INTO users (username, password, email, enabled) VALUES 
 ('admin', '$2a$10$B8tC2TEshD.iRk9.fUK1r.jW5LKpD8U.9Jufc0ZnUAwoe9IruQ5Qm', 'admin@vdt.com', true),
 ('user1', '$2a$10$B8tC2TEshD.iRk9.fUK1r.jW5LKpD8U.9Jufc0ZnUAwoe9IruQ5Qm', 'user1@vdt.com', true),
@@ -73,19 +115,3 @@ INSERT INTO students (full_name, birth_date, school_category) VALUES
 ('Hoàng Minh Thắng', '1999-06-09', 'Đại học tổng hợp ITMO'),
 ('Vũ Đình Ngọc Bảo', '2005-01-29', 'Đại học Khoa học tự nhiên - ĐHQG TPHCM (HCMUS)'),
 ('Nguyễn Hồng Lĩnh', '2003-12-08', 'Đại học Công nghệ (UET)');
-
-
-SELECT COUNT(*) as total_students FROM students;
-SELECT COUNT(*) as total_users FROM users;
-SELECT COUNT(*) as total_roles FROM roles;
-SELECT 
-    u.username, 
-    u.email, 
-    r.name as role_name
-FROM users u
-JOIN user_roles ur ON u.id = ur.user_id
-JOIN roles r ON ur.role_id = r.id
-ORDER BY u.username;
-
-
-SELECT 'Database initialization completed successfully' as status;
\ No newline at end of file
@@ -0,0 +1,16 @@
+-- Tìm kiếm học viên bằng pg_trgm + unaccent (áp dụng cho DB đã khởi tạo từ init.sql bản cũ)
+-- Idempotent: DB mới đã có từ V1, chỉ bổ sung cho DB được baseline từ init.sql bản cũ
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- unaccent() không IMMUTABLE nên không dùng trực tiếp trong index được
+CREATE OR REPLACE FUNCTION f_unaccent(text) RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+AS $$ SELECT public.unaccent('public.unaccent'::regdictionary, $1) $$;
+
+CREATE INDEX IF NOT EXISTS idx_students_full_name_trgm
+    ON students USING gin (f_unaccent(lower(full_name)) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_students_school_category_trgm
+    ON students USING gin (f_unaccent(lower(school_category)) gin_trgm_ops);
+
+ANALYZE students;
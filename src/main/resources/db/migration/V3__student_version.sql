@@ -0,0 +1,9 @@
+-- Cột version (khóa lạc quan, ETag) và bộ đếm thay đổi cho DB đã khởi tạo từ init.sql bản cũ
+-- Idempotent: DB mới đã có từ V1, chỉ bổ sung cho DB được baseline từ init.sql bản cũ
+ALTER TABLE students ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS student_change_counter (
+    id INTEGER PRIMARY KEY,
+    seq BIGINT NOT NULL
+);
+INSERT INTO student_change_counter (id, seq) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
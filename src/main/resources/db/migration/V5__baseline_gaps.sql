@@ -0,0 +1,13 @@
+-- Các đối tượng đã nằm trong V1 nhưng không có trong init.sql bản cũ: DB được baseline ở V1 chưa bao giờ nhận được
+-- Idempotent: DB mới đã có từ V1, chỉ bổ sung cho DB được baseline từ init.sql bản cũ
+CREATE TABLE IF NOT EXISTS rate_limit_buckets (
+    bucket_key VARCHAR(300) PRIMARY KEY,
+    full_at BIGINT NOT NULL,
+    version BIGINT NOT NULL
+);
+
+-- Phân trang keyset theo (full_name, id)
+CREATE INDEX IF NOT EXISTS idx_students_full_name_id ON students(full_name, id);
+
+-- Khớp allocationSize = 50 của Student; optimizer pooled lấy giá trị sequence làm cận trên nên id đã cấp không bị trùng
+ALTER SEQUENCE students_id_seq INCREMENT BY 50;
@@ -0,0 +1,2 @@
+-- Dọn refresh token hết hạn định kỳ (cùng lúc với revoked_tokens) mà không quét cả bảng
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires_at ON refresh_tokens(expires_at);
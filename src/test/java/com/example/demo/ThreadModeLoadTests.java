@@ -0,0 +1,181 @@
+package com.example.demo;
+
+import com.example.demo.dto.BulkStudentResult;
+import com.example.demo.model.Student;
+import com.example.demo.security.JwtUtil;
+import com.example.demo.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * So sánh throughput và độ trễ (p50/p99/p99.9) giữa thread pool của Tomcat và virtual thread
+ * với 1000+ client đồng thời, mỗi request đọc một học viên theo id từ DB (cache students tắt).
+ * Chỉ chạy khi được yêu cầu; mặc định dùng H2 trong bộ nhớ, truyền URL PostgreSQL để có độ trễ JDBC thật:
+ * mvn test -Dtest=ThreadModeLoadTests -Dload.benchmark=true [-Dload.benchmark.url=jdbc:postgresql://localhost:5432/student_bench]
+ * Tùy chọn: -Dload.benchmark.clients=2000 -Dload.benchmark.seconds=30,
+ * thêm -DargLine=-Djdk.tracePinnedThreads=short để in stack mỗi khi virtual thread bị ghim vào carrier.
+ */
+@EnabledIfSystemProperty(named = "load.benchmark", matches = "true")
+class ThreadModeLoadTests {
+
+	private static final int CLIENTS = Integer.getInteger("load.benchmark.clients", 1000);
+	private static final Duration WARMUP = Duration.ofSeconds(5);
+	private static final Duration MEASURE = Duration.ofSeconds(Long.getLong("load.benchmark.seconds", 20));
+	private static final int STUDENTS = 10_000;
+
+	@Test
+	void virtualThreadsKeepTailLatencyUnderLoad() throws Exception {
+		Result platform = run(false);
+		Result virtual = run(true);
+
+		System.out.println("mode      requests  rps      p50ms   p99ms   p999ms  shed(503)  errors");
+		System.out.println(platform);
+		System.out.println(virtual);
+
+		// Quá tải chỉ được phép trả 503 từ bulkhead, không được timeout/lỗi kết nối
+		assertThat(platform.errors()).isZero();
+		assertThat(virtual.errors()).isZero();
+	}
+
+	private Result run(boolean virtualThreads) throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+				.profiles("test")
+				.run(arguments(virtualThreads))) {
+			List<Long> ids = seed(context.getBean(StudentService.class));
+			String token = token(context.getBean(JwtUtil.class));
+			int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+			HttpClient client = HttpClient.newBuilder()
+					.version(HttpClient.Version.HTTP_1_1)
+					.connectTimeout(Duration.ofSeconds(10))
+					.executor(Executors.newVirtualThreadPerTaskExecutor())
+					.build();
+			load(client, port, token, ids, WARMUP);
+			return load(client, port, token, ids, MEASURE).named(virtualThreads ? "virtual" : "platform");
+		}
+	}
+
+	// Truyền dạng tham số dòng lệnh để ghi đè application.properties
+	private static String[] arguments(boolean virtualThreads) {
+		List<String> arguments = new ArrayList<>(List.of(
+				"--server.port=0",
+				"--spring.threads.virtual.enabled=" + virtualThreads,
+				"--rate-limit.enabled=false",
+				"--jwt.authorities-source=token",
+				"--student.cache.students.spec=maximumSize=0",
+				"--student.autocomplete.enabled=false",
+				"--spring.jpa.show-sql=false",
+				"--logging.level.HTTP_REQUEST=WARN"));
+		String url = System.getProperty("load.benchmark.url");
+		if (url != null) {
+			arguments.add("--spring.datasource.url=" + url);
+			arguments.add("--spring.datasource.username=" + System.getProperty("load.benchmark.username", "postgres"));
+			arguments.add("--spring.datasource.password=" + System.getProperty("load.benchmark.password", "123456"));
+			arguments.add("--spring.datasource.driver-class-name=org.postgresql.Driver");
+			arguments.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect");
+		}
+		return arguments.toArray(String[]::new);
+	}
+
+	private static List<Long> seed(StudentService studentService) {
+		return studentService.bulkUpsert(IntStream.range(0, STUDENTS).mapToObj(i -> {
+			Student student = new Student();
+			student.setFullName("Học viên tải " + i);
+			student.setBirthDate(LocalDate.of(2000, 1, 1).plusDays(i % 2000));
+			student.setSchoolCategory("Đại học Công nghệ (UET)");
+			return student;
+		}).iterator()).getResults().stream().map(BulkStudentResult::getId).toList();
+	}
+
+	private static String token(JwtUtil jwtUtil) {
+		UserDetails user = User.withUsername("load-test").password("").authorities("ROLE_USER").build();
+		return jwtUtil.generateJwtToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+	}
+
+	// Mỗi client là một virtual thread gửi request tuần tự (đóng vòng) cho tới hết thời gian đo
+	private static Result load(HttpClient client, int port, String token, List<Long> ids, Duration duration)
+			throws Exception {
+		AtomicLong shed = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		long deadline = System.nanoTime() + duration.toNanos();
+		List<Future<long[]>> futures = new ArrayList<>(CLIENTS);
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < CLIENTS; i++) {
+				futures.add(clients.submit(() -> {
+					LongStream.Builder latencies = LongStream.builder();
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					while (System.nanoTime() < deadline) {
+						HttpRequest request = HttpRequest.newBuilder(URI.create(
+										"http://localhost:" + port + "/api/students/" + ids.get(random.nextInt(ids.size()))))
+								.header("Authorization", "Bearer " + token)
+								.timeout(Duration.ofSeconds(30))
+								.build();
+						long start = System.nanoTime();
+						try {
+							int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+							if (status == 200) {
+								latencies.add(System.nanoTime() - start);
+							} else if (status == 503) {
+								shed.incrementAndGet();
+							} else {
+								errors.incrementAndGet();
+							}
+						} catch (Exception e) {
+							errors.incrementAndGet();
+						}
+					}
+					return latencies.build().toArray();
+				}));
+			}
+		}
+		long[] all = futures.stream().flatMapToLong(f -> LongStream.of(f.resultNow())).sorted().toArray();
+		return new Result("", all, duration, shed.get(), errors.get());
+	}
+
+	private record Result(String mode, long[] sortedLatencies, Duration duration, long shed, long errors) {
+
+		Result named(String name) {
+			return new Result(name, sortedLatencies, duration, shed, errors);
+		}
+
+		double percentileMillis(double p) {
+			if (sortedLatencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(p * sortedLatencies.length) - 1);
+			return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-9s %-9d %-8.0f %-7.1f %-7.1f %-7.1f %-10d %d",
+					mode, sortedLatencies.length, sortedLatencies.length / (double) duration.toSeconds(),
+					percentileMillis(0.50), percentileMillis(0.99), percentileMillis(0.999), shed, errors);
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.example.demo.config;
+
+import com.example.demo.metrics.RequestTimings;
+import com.example.demo.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Chế độ virtual thread: loader của cache chạy trên luồng khác, vẫn thấy request attributes và RequestTimings
+ * của request đang chờ nó.
+ */
+@SpringBootTest(properties = {"spring.threads.virtual.enabled=true", "jwt.authorities-source=token"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AsyncCacheContextTests {
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@AfterEach
+	void clearRequest() {
+		RequestContextHolder.resetRequestAttributes();
+		RequestTimings.end();
+	}
+
+	@Test
+	void loaderSeesRequestAttributesAndTimings() throws Exception {
+		RequestAttributes request = new ServletRequestAttributes(new MockHttpServletRequest());
+		RequestContextHolder.setRequestAttributes(request);
+		RequestTimings timings = RequestTimings.begin();
+		Cache cache = cacheManager.getCache(CacheConfig.STUDENTS);
+		AtomicReference<Thread> loaderThread = new AtomicReference<>();
+		AtomicReference<RequestAttributes> loaderRequest = new AtomicReference<>();
+
+		cache.get(-1L, () -> {
+			loaderThread.set(Thread.currentThread());
+			loaderRequest.set(RequestContextHolder.getRequestAttributes());
+			RequestTimings.start(RequestTimings.Phase.DB);
+			Thread.sleep(20);
+			RequestTimings.stop(RequestTimings.Phase.DB);
+			return "loaded";
+		});
+
+		assertThat(loaderThread.get()).isNotSameAs(Thread.currentThread());
+		assertThat(loaderThread.get().isVirtual()).isTrue();
+		assertThat(loaderRequest.get()).isSameAs(request);
+		assertThat(timings.nanos(RequestTimings.Phase.DB)).isGreaterThanOrEqualTo(Duration.ofMillis(20).toNanos());
+		cache.evict(-1L);
+	}
+
+	@Test
+	void cacheMissReportsSerializationInServerTiming() throws Exception {
+		UserDetails user = User.withUsername("async-cache-user").password("").authorities("ROLE_USER").build();
+		String token = jwtUtil.generateJwtToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+		cacheManager.getCache(CacheConfig.STUDENT_PAYLOADS).clear();
+
+		String header = mockMvc.perform(get("/api/students/search/name").param("name", "không khớp")
+						.header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("Server-Timing");
+
+		// Serialize chỉ chạy trong loader của cache payload
+		assertThat(header).contains("service;dur=", "db;dur=", "serialize;dur=");
+	}
+}
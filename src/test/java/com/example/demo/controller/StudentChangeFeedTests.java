@@ -0,0 +1,149 @@
+package com.example.demo.controller;
+
+import com.example.demo.model.Student;
+import com.example.demo.security.JwtUtil;
+import com.example.demo.service.StudentService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"jwt.authorities-source=token", "rate-limit.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StudentChangeFeedTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private StudentService studentService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private String authorization;
+
+	@BeforeEach
+	void token() {
+		UserDetails user = User.withUsername("feed-user").password("").authorities("ROLE_USER").build();
+		authorization = "Bearer " + jwtUtil.generateJwtToken(
+				new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+	}
+
+	@Test
+	void streamsCommittedChangesAndResumesFromLastEventId() throws Exception {
+		MvcResult live = subscribe(null);
+
+		Student created = studentService.saveStudent(student("Nguyễn Văn Feed"));
+		Student changes = new Student();
+		changes.setFullName("Nguyễn Văn Feed 2");
+		studentService.updateStudent(created.getId(), changes, null);
+		studentService.deleteStudent(created.getId());
+
+		String stream = awaitContent(live.getResponse(), "event:deleted");
+		assertThat(stream).contains("event:created", "\"fullName\":\"Nguyễn Văn Feed\"", "event:updated",
+				"\"id\":" + created.getId());
+		assertThat(stream.indexOf("event:created")).isLessThan(stream.indexOf("event:updated"));
+
+		// Kết nối lại sau sự kiện created: chỉ nhận updated và deleted
+		String firstId = firstEventId(stream);
+		MvcResult resumed = subscribe(firstId);
+		String replay = awaitContent(resumed.getResponse(), "event:deleted");
+		assertThat(replay).contains("event:updated").doesNotContain("event:created");
+	}
+
+	@Test
+	void bulkUpsertSendsOneResetPerChunkInsteadOfEvictingSubscribers() throws Exception {
+		MvcResult live = subscribe(null);
+		double evicted = meterRegistry.counter("student_changes_evicted_total", "reason", "slow_consumer").count();
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 600; i++) {
+			students.add(student("Học viên Bulk " + i));
+		}
+
+		studentService.bulkUpsert(students.iterator());
+
+		// 600 dòng, student.bulk.batch-size = 500: hai lô, hai sự kiện reset
+		String stream = awaitContent(live.getResponse(), "event:reset");
+		long deadline = System.currentTimeMillis() + 5000;
+		while (stream.split("event:reset", -1).length < 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+			stream = live.getResponse().getContentAsString(StandardCharsets.UTF_8);
+		}
+		assertThat(stream.split("event:reset", -1)).hasSize(3);
+		assertThat(stream).doesNotContain("event:created");
+		assertThat(meterRegistry.counter("student_changes_evicted_total", "reason", "slow_consumer").count())
+				.isEqualTo(evicted);
+	}
+
+	@Test
+	void unknownLastEventIdAsksClientToReload() throws Exception {
+		MvcResult result = subscribe("other-pod-42");
+		// Chờ cả dòng data: sự kiện có thể mới được ghi một phần
+		assertThat(awaitContent(result.getResponse(), "event:reset\ndata:{\"type\":\"reset\"}")).isNotEmpty();
+	}
+
+	@Test
+	void requiresTheSameRolesAsOtherReads() throws Exception {
+		mockMvc.perform(get("/api/students/changes")).andExpect(status().isForbidden());
+	}
+
+	private MvcResult subscribe(String lastEventId) throws Exception {
+		var changes = get("/api/students/changes").header("Authorization", authorization);
+		if (lastEventId != null) {
+			changes.header("Last-Event-ID", lastEventId);
+		}
+		return mockMvc.perform(changes)
+				.andExpect(request().asyncStarted())
+				.andExpect(status().isOk())
+				.andReturn();
+	}
+
+	private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000;
+		String content = response.getContentAsString(StandardCharsets.UTF_8);
+		while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+			content = response.getContentAsString(StandardCharsets.UTF_8);
+		}
+		assertThat(content).contains(expected);
+		return content;
+	}
+
+	private static String firstEventId(String stream) {
+		Matcher matcher = Pattern.compile("id:(\\S+)").matcher(stream);
+		assertThat(matcher.find()).isTrue();
+		return matcher.group(1);
+	}
+
+	private static Student student(String fullName) {
+		Student student = new Student();
+		student.setFullName(fullName);
+		student.setSchoolCategory("UET");
+		return student;
+	}
+}
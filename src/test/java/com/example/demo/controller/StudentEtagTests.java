@@ -0,0 +1,110 @@
+package com.example.demo.controller;
+
+import com.example.demo.security.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"jwt.authorities-source=token", "rate-limit.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StudentEtagTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private String authorization;
+
+	@BeforeEach
+	void token() {
+		UserDetails admin = User.withUsername("etag-admin").password("").authorities("ROLE_ADMIN").build();
+		authorization = "Bearer " + jwtUtil.generateJwtToken(
+				new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+	}
+
+	@Test
+	void studentEtagEnablesConditionalGetAndOptimisticPut() throws Exception {
+		MvcResult created = mockMvc.perform(post("/api/students").header("Authorization", authorization)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"fullName\": \"Nguyễn Văn ETag\", \"schoolCategory\": \"UET\"}"))
+				.andExpect(status().isOk())
+				.andReturn();
+		long id = objectMapper.readTree(created.getResponse().getContentAsString()).get("id").asLong();
+		String etag = created.getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(etag).isEqualTo("\"student-" + id + "-0\"");
+
+		mockMvc.perform(get("/api/students/" + id).header("Authorization", authorization)
+						.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, etag))
+				.andExpect(content().string(""));
+
+		String updatedEtag = mockMvc.perform(put("/api/students/" + id).header("Authorization", authorization)
+						.header(HttpHeaders.IF_MATCH, etag)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"fullName\": \"Nguyễn Văn ETag 2\", \"schoolCategory\": \"UET\"}"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(updatedEtag).isEqualTo("\"student-" + id + "-1\"");
+
+		// Ghi đè bằng ETag cũ bị từ chối
+		mockMvc.perform(put("/api/students/" + id).header("Authorization", authorization)
+						.header(HttpHeaders.IF_MATCH, etag)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"fullName\": \"Ghi đè\", \"schoolCategory\": \"UET\"}"))
+				.andExpect(status().isPreconditionFailed());
+
+		mockMvc.perform(get("/api/students/" + id).header("Authorization", authorization)
+						.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, updatedEtag));
+	}
+
+	@Test
+	void collectionEtagChangesOnlyAfterWrites() throws Exception {
+		String etag = mockMvc.perform(get("/api/students").header("Authorization", authorization))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(etag).startsWith("\"students-");
+
+		mockMvc.perform(get("/api/students").header("Authorization", authorization)
+						.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		mockMvc.perform(post("/api/students").header("Authorization", authorization)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"fullName\": \"Học viên mới\"}"))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get("/api/students").header("Authorization", authorization)
+						.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+	}
+}
@@ -0,0 +1,157 @@
+package com.example.demo.controller;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.model.Student;
+import com.example.demo.model.StudentChangeCounter;
+import com.example.demo.repository.StudentChangeCounterRepository;
+import com.example.demo.repository.StudentRepository;
+import com.example.demo.security.JwtUtil;
+import com.example.demo.service.StudentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"jwt.authorities-source=token", "rate-limit.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StudentPayloadCacheTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private StudentService studentService;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private StudentChangeCounterRepository changeCounterRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private String authorization;
+
+	@BeforeEach
+	void seed() {
+		UserDetails admin = User.withUsername("payload-admin").password("").authorities("ROLE_ADMIN").build();
+		authorization = "Bearer " + jwtUtil.generateJwtToken(
+				new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+		studentService.bulkUpsert(IntStream.range(0, 100).mapToObj(i -> {
+			Student student = new Student();
+			student.setFullName("Trần Thị Nén " + i);
+			student.setSchoolCategory("Đại học Bách khoa Hà Nội (HUST)");
+			return student;
+		}).iterator());
+	}
+
+	@Test
+	void servesCachedGzipBytesAndRefreshesAfterWrites() throws Exception {
+		MockHttpServletResponse identity = mockMvc.perform(get("/api/students").header("Authorization", authorization))
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+		MockHttpServletResponse gzip = mockMvc.perform(get("/api/students").header("Authorization", authorization)
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+
+		assertThat(identity.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(gzip.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(gzip.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(gzip.getHeader(HttpHeaders.ETAG)).isEqualTo("W/" + identity.getHeader(HttpHeaders.ETAG));
+		assertThat(gzip.getContentAsByteArray().length).isLessThan(identity.getContentAsByteArray().length / 4);
+		assertThat(gunzip(gzip.getContentAsByteArray())).isEqualTo(identity.getContentAsString(StandardCharsets.UTF_8));
+		assertThat(payloadCache().getNativeCache().stats().hitCount()).isPositive();
+
+		// Client gửi lại ETag yếu của bản gzip vẫn nhận 304
+		mockMvc.perform(get("/api/students").header("Authorization", authorization)
+						.header(HttpHeaders.IF_NONE_MATCH, gzip.getHeader(HttpHeaders.ETAG)))
+				.andExpect(status().isNotModified());
+
+		mockMvc.perform(post("/api/students").header("Authorization", authorization)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"fullName\": \"Aaa Học viên sau khi cache\"}"))
+				.andExpect(status().isOk());
+		assertThat(payloadCache().getNativeCache().estimatedSize()).isZero();
+
+		String search = mockMvc.perform(get("/api/students/search/name").param("name", "sau khi cache")
+						.header("Authorization", authorization))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		assertThat(search).contains("Aaa Học viên sau khi cache");
+	}
+
+	@Test
+	void writeCommittedBeforeEvictionIsNotServedUnderNewEtag() throws Exception {
+		MockHttpServletResponse list = mockMvc.perform(get("/api/students").header("Authorization", authorization))
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+		MockHttpServletResponse search = mockMvc.perform(get("/api/students/search/name").param("name", "chưa xóa cache")
+						.header("Authorization", authorization))
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+		assertThat(search.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("[]");
+
+		// Ghi đã commit nhưng cache chưa bị xóa: giống khoảng giữa commit và afterCommit, hoặc pod khác ghi
+		// trước khi NOTIFY tới
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Student student = new Student();
+			student.setFullName("Học viên chưa xóa cache");
+			studentRepository.save(student);
+			changeCounterRepository.increment(StudentChangeCounter.STUDENTS);
+		});
+
+		MockHttpServletResponse listAfter = mockMvc.perform(get("/api/students").header("Authorization", authorization))
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+		MockHttpServletResponse searchAfter = mockMvc.perform(get("/api/students/search/name")
+						.param("name", "chưa xóa cache").header("Authorization", authorization))
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+		assertThat(listAfter.getHeader(HttpHeaders.ETAG)).isNotEqualTo(list.getHeader(HttpHeaders.ETAG));
+		assertThat(listAfter.getContentAsString(StandardCharsets.UTF_8)).contains("Học viên chưa xóa cache");
+		assertThat(searchAfter.getHeader(HttpHeaders.ETAG)).isNotEqualTo(search.getHeader(HttpHeaders.ETAG));
+		assertThat(searchAfter.getContentAsString(StandardCharsets.UTF_8)).contains("Học viên chưa xóa cache");
+	}
+
+	private CaffeineCache payloadCache() {
+		return (CaffeineCache) cacheManager.getCache(CacheConfig.STUDENT_PAYLOADS);
+	}
+
+	private static String gunzip(byte[] bytes) throws Exception {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package com.example.demo.datasource;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.StudentView;
+import com.example.demo.model.Student;
+import com.example.demo.service.StudentService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Primary và replica là hai H2 riêng (replica không tự đồng bộ, nên dữ liệu chỉ có ở một bên cho biết
+ * truy vấn đã đi tới đâu). Replica đầu tiên trỏ tới một cổng không có PostgreSQL để kiểm tra failover.
+ */
+class ReadWriteRoutingTests {
+
+	private static final String PRIMARY_URL =
+			"jdbc:h2:mem:routing_primary;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+	private static final String REPLICA_URL =
+			"jdbc:h2:mem:routing_replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+	private static final String UNREACHABLE_URL = "jdbc:postgresql://127.0.0.1:1/student_management";
+	private static final Duration REPLICA_LAG = Duration.ofMillis(300);
+
+	private static ConfigurableApplicationContext context;
+	private static JdbcTemplate primary;
+	private static JdbcTemplate replica;
+
+	@BeforeAll
+	static void start() {
+		context = new SpringApplicationBuilder(DemoApplication.class)
+				.web(WebApplicationType.NONE)
+				.profiles("test")
+				.run("--spring.datasource.url=" + PRIMARY_URL,
+						"--datasource.routing.enabled=true",
+						"--datasource.routing.strategy=round-robin",
+						"--datasource.routing.connection-timeout=250ms",
+						"--datasource.routing.failure-cooldown=1m",
+						"--datasource.routing.replica-lag=" + REPLICA_LAG.toMillis() + "ms",
+						"--datasource.routing.replicas[0].url=" + UNREACHABLE_URL,
+						"--datasource.routing.replicas[1].url=" + REPLICA_URL,
+						"--student.cache.pages.spec=maximumSize=0",
+						"--student.cache.search.spec=maximumSize=0",
+						"--student.autocomplete.enabled=false");
+		primary = new JdbcTemplate(context.getBean("primaryDataSource", HikariDataSource.class));
+		replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+		// "Sao chép" schema từ primary sang replica
+		List<String> ddl = primary.queryForList("SCRIPT NODATA", String.class);
+		ddl.stream().filter(sql -> !sql.startsWith("CREATE USER")).forEach(replica::execute);
+	}
+
+	@AfterAll
+	static void stop() {
+		context.close();
+		replica.execute("SHUTDOWN");
+	}
+
+	@BeforeEach
+	void waitForReplicaLag() throws InterruptedException {
+		awaitReplicaLag();
+	}
+
+	@AfterEach
+	void clearRequest() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void readOnlyTransactionsReadFromAvailableReplica() {
+		replica.update("INSERT INTO students (id, full_name, birth_date, school_category, version) "
+				+ "VALUES (9001, 'Chỉ có trên replica', DATE '2000-01-01', 'UET', 0)");
+		StudentService studentService = context.getBean(StudentService.class);
+
+		for (int i = 0; i < 4; i++) {
+			// Đọc lại từ DB mỗi lần
+			context.getBean(CacheManager.class).getCache(CacheConfig.STUDENTS).clear();
+			assertThat(studentService.getStudentById(9001L)).isPresent();
+		}
+		assertThat(primary.queryForObject("SELECT COUNT(*) FROM students WHERE id = 9001", Integer.class)).isZero();
+		// Replica không kết nối được bị bỏ qua, đọc vẫn thành công qua replica còn lại
+		assertThat(context.getBean(ReplicaDataSource.class).getAvailableReplicas()).isEqualTo(1);
+		assertThat(context.getBean(ReplicaDataSource.class).getFallbackCount()).isZero();
+	}
+
+	@Test
+	void writesGoToPrimaryAndPinLaterReadsInSameRequest() throws Exception {
+		StudentService studentService = context.getBean(StudentService.class);
+
+		Long outside = studentService.saveStudent(student("Ghi ngoài request")).getId();
+		assertThat(primary.queryForObject("SELECT COUNT(*) FROM students WHERE id = ?", Integer.class, outside))
+				.isOne();
+		// Hết replica-lag, không có request: đọc read-only đi replica (chưa có bản ghi)
+		awaitReplicaLag();
+		assertThat(studentService.getStudentById(outside)).isEmpty();
+
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		Long inside = studentService.saveStudent(student("Ghi trong request")).getId();
+		awaitReplicaLag();
+		assertThat(studentService.getStudentById(inside)).isPresent();
+	}
+
+	@Test
+	void reloadsEvictedEntryFromPrimaryWhileReplicaLags() throws Exception {
+		for (JdbcTemplate db : List.of(primary, replica)) {
+			db.update("INSERT INTO students (id, full_name, birth_date, school_category, version) "
+					+ "VALUES (9002, 'Tên cũ', DATE '2000-01-01', 'UET', 0)");
+		}
+		StudentService studentService = context.getBean(StudentService.class);
+		assertThat(studentService.getStudentById(9002L)).get().extracting(StudentView::fullName).isEqualTo("Tên cũ");
+
+		// Replica không nhận bản cập nhật: lần đọc ngay sau khi cache bị xóa phải tới primary
+		studentService.updateStudent(9002L, student("Tên mới"), null);
+		assertThat(studentService.getStudentById(9002L)).get().extracting(StudentView::fullName).isEqualTo("Tên mới");
+
+		// Hết replica-lag: cache vẫn giữ bản của primary, không phải bản cũ của replica
+		awaitReplicaLag();
+		assertThat(studentService.getStudentById(9002L)).get().extracting(StudentView::fullName).isEqualTo("Tên mới");
+		assertThat(replica.queryForObject("SELECT full_name FROM students WHERE id = 9002", String.class))
+				.isEqualTo("Tên cũ");
+	}
+
+	@Test
+	void fallsBackToPrimaryWhenNoReplicaIsAvailable() throws Exception {
+		HikariConfig config = new HikariConfig();
+		config.setJdbcUrl(UNREACHABLE_URL);
+		config.setConnectionTimeout(250);
+		config.setInitializationFailTimeout(-1);
+		try (HikariDataSource unreachable = new HikariDataSource(config)) {
+			ReplicaDataSource replicas = new ReplicaDataSource(context.getBean("primaryDataSource", HikariDataSource.class),
+					List.of(unreachable), ReplicaDataSource.Strategy.LEAST_LOADED, Duration.ofMinutes(1));
+
+			try (Connection connection = replicas.getConnection()) {
+				assertThat(connection.getMetaData().getURL()).contains("routing_primary");
+			}
+			assertThat(replicas.getAvailableReplicas()).isZero();
+			assertThat(replicas.getFallbackCount()).isOne();
+		}
+	}
+
+	@Test
+	void busyReplicaIsSkippedWithoutCooldown() throws Exception {
+		HikariConfig config = new HikariConfig();
+		config.setJdbcUrl(REPLICA_URL);
+		config.setUsername("sa");
+		config.setMaximumPoolSize(1);
+		config.setConnectionTimeout(250);
+		try (HikariDataSource busy = new HikariDataSource(config)) {
+			ReplicaDataSource replicas = new ReplicaDataSource(context.getBean("primaryDataSource", HikariDataSource.class),
+					List.of(busy), ReplicaDataSource.Strategy.ROUND_ROBIN, Duration.ofMinutes(1));
+
+			try (Connection held = replicas.getConnection()) {
+				assertThat(held.getMetaData().getURL()).contains("routing_replica");
+				// Pool duy nhất đã hết connection: lần này đọc từ primary nhưng replica vẫn được dùng tiếp
+				try (Connection connection = replicas.getConnection()) {
+					assertThat(connection.getMetaData().getURL()).contains("routing_primary");
+				}
+				assertThat(replicas.getAvailableReplicas()).isOne();
+			}
+			try (Connection connection = replicas.getConnection()) {
+				assertThat(connection.getMetaData().getURL()).contains("routing_replica");
+			}
+		}
+	}
+
+	private static void awaitReplicaLag() throws InterruptedException {
+		while (context.getBean(ReplicaLagWindow.class).isOpen()) {
+			Thread.sleep(REPLICA_LAG.toMillis() / 10);
+		}
+	}
+
+	private static Student student(String name) {
+		Student student = new Student();
+		student.setFullName(name);
+		student.setBirthDate(LocalDate.of(2001, 1, 1));
+		student.setSchoolCategory("UET");
+		return student;
+	}
+}
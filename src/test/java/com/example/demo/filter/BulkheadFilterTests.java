@@ -0,0 +1,65 @@
+package com.example.demo.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkheadFilterTests {
+
+	@Test
+	void shedsRequestsBeyondPermitsAndReleasesAfterCompletion() throws Exception {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		BulkheadFilter filter = new BulkheadFilter();
+		ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(filter, "enabled", true);
+		ReflectionTestUtils.setField(filter, "maxConcurrent", 1);
+		ReflectionTestUtils.setField(filter, "acquireTimeoutMs", 50L);
+		filter.init();
+
+		// Request đầu giữ permit duy nhất cho tới khi latch được mở
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		Thread holder = Thread.ofVirtual().start(() -> {
+			try {
+				filter.doFilter(new MockHttpServletRequest("GET", "/api/students/1"), first, (req, res) -> {
+					entered.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+		MockHttpServletResponse shed = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/students/2"), shed, (req, res) -> { });
+		assertThat(shed.getStatus()).isEqualTo(503);
+		assertThat(shed.getHeader("Retry-After")).isEqualTo("1");
+		assertThat(meterRegistry.get("bulkhead_rejected_total").counter().count()).isEqualTo(1);
+
+		// Actuator không đi qua bulkhead
+		MockHttpServletResponse actuator = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), actuator, (req, res) -> { });
+		assertThat(actuator.getStatus()).isEqualTo(200);
+
+		release.countDown();
+		holder.join();
+		MockHttpServletResponse next = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/students/3"), next, (req, res) -> { });
+		assertThat(next.getStatus()).isEqualTo(200);
+		assertThat(meterRegistry.get("bulkhead_active_requests").gauge().value()).isZero();
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.example.demo.filter;
+
+import com.example.demo.DemoApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hai instance của ứng dụng dùng chung một database (H2 riêng cho test này) với rate-limit.backend=jdbc:
+ * giới hạn áp dụng cho tổng số request tới cả hai instance chứ không nhân theo số instance.
+ */
+class DistributedRateLimitTests {
+
+	private static final String DATABASE_URL =
+			"jdbc:h2:mem:rate_limit_cluster;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	private static ConfigurableApplicationContext first;
+	private static ConfigurableApplicationContext second;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeAll
+	static void startInstances() {
+		first = start();
+		second = start();
+	}
+
+	@AfterAll
+	static void stopInstances() {
+		second.close();
+		first.close();
+	}
+
+	private static ConfigurableApplicationContext start() {
+		return new SpringApplicationBuilder(DemoApplication.class)
+				.profiles("test")
+				.run("--server.port=0",
+						"--spring.datasource.url=" + DATABASE_URL,
+						"--spring.jpa.hibernate.ddl-auto=update",
+						"--rate-limit.backend=jdbc",
+						"--rate-limit.anonymous.capacity=4",
+						"--rate-limit.anonymous.period=1m",
+						"--student.autocomplete.enabled=false");
+	}
+
+	@Test
+	void sharesLimitAcrossInstances() throws Exception {
+		int allowed = 0;
+		int rejected = 0;
+		for (int i = 0; i < 10; i++) {
+			int status = get(i % 2 == 0 ? first : second);
+			if (status == 409) {
+				rejected++;
+			} else {
+				allowed++;
+			}
+		}
+
+		// Mỗi instance tự giới hạn thì sẽ được 8 request
+		assertThat(allowed).isEqualTo(4);
+		assertThat(rejected).isEqualTo(6);
+		assertThat(new JdbcTemplate(first.getBean(DataSource.class))
+				.queryForObject("SELECT COUNT(*) FROM rate_limit_buckets", Integer.class)).isEqualTo(1);
+	}
+
+	private int get(ConfigurableApplicationContext instance) throws Exception {
+		int port = instance.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/test")).build();
+		return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.example.demo.filter;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestLoggingFilterTests {
+
+	private final Logger logger = (Logger) LoggerFactory.getLogger("HTTP_REQUEST");
+	private final ListAppender<ILoggingEvent> events = new ListAppender<>();
+
+	@BeforeEach
+	void attach() {
+		events.start();
+		logger.addAppender(events);
+	}
+
+	@AfterEach
+	void detach() {
+		logger.detachAppender(events);
+	}
+
+	@Test
+	void samplesSuccessfulRequestsButAlwaysLogsErrors() throws Exception {
+		RequestLoggingFilter filter = new RequestLoggingFilter();
+		ReflectionTestUtils.setField(filter, "successSampleRate", 0.0);
+		ReflectionTestUtils.setField(filter, "slowThresholdMs", 60_000L);
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/students"), new MockHttpServletResponse(),
+				(req, res) -> { });
+		assertThat(events.list).isEmpty();
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/students/1"), new MockHttpServletResponse(),
+				(req, res) -> ((MockHttpServletResponse) res).setStatus(404));
+		assertThat(events.list).hasSize(1);
+		ILoggingEvent event = events.list.get(0);
+		assertThat(event.getFormattedMessage()).contains("Path: /api/students/1", "Status: 404");
+		assertThat(event.getMDCPropertyMap()).containsKey("requestId");
+	}
+
+	@Test
+	void requestIdsAreEightHexCharacters() {
+		assertThat(RequestLoggingFilter.newRequestId()).matches("[0-9a-f]{8}");
+	}
+}
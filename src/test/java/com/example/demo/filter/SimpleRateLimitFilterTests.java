@@ -0,0 +1,127 @@
+package com.example.demo.filter;
+
+import com.example.demo.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimpleRateLimitFilterTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void keysAnonymousClientsByRemoteAddressNotForwardedFor() throws Exception {
+		SimpleRateLimitFilter filter = filter(new RateLimitProperties());
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(send(filter, "/api/students", "203.0.113." + i).getStatus()).isEqualTo(200);
+		}
+		MockHttpServletResponse rejected = send(filter, "/api/students", "198.51.100.1");
+		assertThat(rejected.getStatus()).isEqualTo(409);
+		assertThat(rejected.getHeader("Retry-After")).isNotNull();
+		assertThat(rejected.getContentAsString()).contains("limit: 10 requests per minute");
+		assertThat(meterRegistry.get("rate_limit_rejected_total").tag("route", "default")
+				.tag("client", "anonymous").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void appliesRouteAndPrincipalLimits() throws Exception {
+		RateLimitProperties properties = new RateLimitProperties();
+		RateLimitProperties.Route auth = new RateLimitProperties.Route();
+		auth.setPattern("/api/auth/**");
+		auth.setAnonymous(new RateLimitProperties.Limit(1, Duration.ofMinutes(1)));
+		properties.setRoutes(List.of(auth));
+		properties.setAuthenticated(new RateLimitProperties.Limit(2, Duration.ofMinutes(1)));
+		properties.getPrincipals().put("admin", new RateLimitProperties.Limit(3, Duration.ofMinutes(1)));
+		SimpleRateLimitFilter filter = filter(properties);
+
+		assertThat(send(filter, "/api/auth/login", null).getStatus()).isEqualTo(200);
+		assertThat(send(filter, "/api/auth/login", null).getStatus()).isEqualTo(409);
+		// Route khác có bucket riêng
+		assertThat(send(filter, "/api/students", null).getStatus()).isEqualTo(200);
+
+		authenticate("user");
+		assertThat(statuses(filter, 3)).containsExactly(200, 200, 409);
+		authenticate("admin");
+		assertThat(statuses(filter, 4)).containsExactly(200, 200, 200, 409);
+	}
+
+	@Test
+	void staysBoundedUnderFloodOfDistinctKeys() {
+		RateLimitBucketStore store = new RateLimitBucketStore(10_000, Duration.ofMinutes(10));
+		RateLimitProperties.Limit limit = new RateLimitProperties.Limit(10, Duration.ofMinutes(1));
+
+		long now = System.nanoTime();
+		for (int i = 0; i < 10_000_000; i++) {
+			store.tryConsume("default|ip:" + i, limit, now);
+		}
+		store.cleanUp();
+
+		assertThat(store.size()).isLessThanOrEqualTo(10_000);
+	}
+
+	@Test
+	void refillsAfterPeriod() {
+		RateLimitBucketStore store = new RateLimitBucketStore(100, Duration.ofMinutes(10));
+		RateLimitProperties.Limit limit = new RateLimitProperties.Limit(2, Duration.ofSeconds(10));
+
+		assertThat(store.tryConsume("k", limit, 0)).isZero();
+		assertThat(store.tryConsume("k", limit, 0)).isZero();
+		assertThat(store.tryConsume("k", limit, 0)).isEqualTo(Duration.ofSeconds(5).toNanos());
+		// Mỗi 5 giây hồi một token
+		assertThat(store.tryConsume("k", limit, Duration.ofSeconds(5).toNanos())).isZero();
+		assertThat(store.tryConsume("k", limit, Duration.ofSeconds(5).toNanos())).isPositive();
+	}
+
+	private SimpleRateLimitFilter filter(RateLimitProperties properties) {
+		SimpleRateLimitFilter filter = new SimpleRateLimitFilter();
+		ReflectionTestUtils.setField(filter, "properties", properties);
+		ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(filter, "backend",
+				new RateLimitBucketStore(properties.getMaxKeys(), properties.effectiveExpireAfterAccess()));
+		filter.init();
+		return filter;
+	}
+
+	private static MockHttpServletResponse send(SimpleRateLimitFilter filter, String path, String forwardedFor)
+			throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		request.setRemoteAddr("192.0.2.10");
+		if (forwardedFor != null) {
+			request.addHeader("X-Forwarded-For", forwardedFor);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, (req, res) -> { });
+		return response;
+	}
+
+	private static List<Integer> statuses(SimpleRateLimitFilter filter, int count) throws Exception {
+		Integer[] statuses = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			statuses[i] = send(filter, "/api/students", null).getStatus();
+		}
+		return List.of(statuses);
+	}
+
+	private static void authenticate(String username) {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+				username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+	}
+
+}
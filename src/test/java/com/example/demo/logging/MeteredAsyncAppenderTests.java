@@ -0,0 +1,71 @@
+package com.example.demo.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MeteredAsyncAppenderTests {
+
+	@Test
+	void dropsAndCountsEventsWhenRingBufferIsFull() throws Exception {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger delivered = new AtomicInteger();
+		// Appender bên dưới bị chặn để ring buffer đầy
+		AppenderBase<ILoggingEvent> blocked = new AppenderBase<>() {
+			@Override
+			protected void append(ILoggingEvent event) {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				delivered.incrementAndGet();
+			}
+		};
+		blocked.setContext(context);
+		blocked.start();
+
+		MeteredAsyncAppender appender = new MeteredAsyncAppender();
+		appender.setContext(context);
+		appender.setRingBufferSize(16);
+		appender.addAppender(blocked);
+		appender.start();
+		try {
+			for (int i = 0; i < 100; i++) {
+				appender.doAppend(event(context, "event " + i));
+			}
+
+			assertThat(appender.getDroppedCount()).isGreaterThan(0);
+			assertThat(appender.getQueueDepth()).isBetween(1L, 16L);
+			assertThat(appender.getDroppedCount() + appender.getQueueDepth()).isLessThanOrEqualTo(100);
+
+			release.countDown();
+			long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+			while (appender.getQueueDepth() > 0 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertThat(appender.getQueueDepth()).isZero();
+			assertThat(delivered.get() + appender.getDroppedCount()).isEqualTo(100);
+		} finally {
+			release.countDown();
+			appender.stop();
+		}
+	}
+
+	private static ILoggingEvent event(LoggerContext context, String message) {
+		return new LoggingEvent(MeteredAsyncAppenderTests.class.getName(), context.getLogger("test"), Level.INFO,
+				message, null, null);
+	}
+}
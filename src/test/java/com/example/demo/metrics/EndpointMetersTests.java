@@ -0,0 +1,44 @@
+package com.example.demo.metrics;
+
+import com.example.demo.controller.MetricsController;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EndpointMetersTests {
+
+	@Test
+	void recordsByStatusWithoutAllocating() {
+		PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		MetricsController metricsController = new MetricsController();
+		ReflectionTestUtils.setField(metricsController, "meterRegistry", registry);
+		EndpointMeters meters = metricsController.endpointMeters("student", "getStudentById");
+
+		// Timer 200 đã đăng ký sẵn, 404 được tạo ở lần đầu
+		meters.record(404, 2_000_000);
+		for (int i = 0; i < 100_000; i++) {
+			meters.record(200, 1_000_000 + i);
+		}
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().threadId();
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 100_000; i++) {
+			meters.record(200, 1_000_000 + i);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		// Cho phép nhiễu nhỏ của JVM, cách cũ tốn hàng trăm byte mỗi request
+		assertThat(allocated).isLessThan(100_000);
+		assertThat(registry.get("student_request_duration").tag("endpoint", "getStudentById")
+				.tag("status", "404").tag("outcome", "CLIENT_ERROR").timer().count()).isEqualTo(1);
+		assertThat(registry.get("student_requests_total").counter().count()).isEqualTo(200_001);
+		assertThat(registry.scrape()).contains("student_request_duration_seconds_bucket");
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.example.demo.metrics;
+
+import com.example.demo.security.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "jwt.authorities-source=token")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ServerTimingTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void reportsPhasesInHeaderAndTimers() throws Exception {
+		UserDetails user = User.withUsername("timing-user").password("").authorities("ROLE_USER").build();
+		String token = jwtUtil.generateJwtToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+
+		String header = mockMvc.perform(get("/api/students").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("Server-Timing");
+
+		assertThat(header).contains("ratelimit;dur=", "auth;dur=", "user;dur=", "service;dur=", "db;dur=", "total;dur=");
+		assertThat(meterRegistry.get("http_server_phase_duration").tag("phase", "serialize").timer().count())
+				.isPositive();
+		assertThat(meterRegistry.get("http_server_phase_duration").tag("phase", "db").timer().count())
+				.isPositive();
+	}
+
+	@Test
+	void addsHeaderToResponsesWrittenOutsideJsonConverter() throws Exception {
+		String header = mockMvc.perform(get("/api/students"))
+				.andExpect(status().isForbidden())
+				.andReturn().getResponse().getHeader("Server-Timing");
+
+		// Spring Security từ chối trước rate limit, response 403 ghi qua sendError
+		assertThat(header).contains("auth;dur=", "total;dur=").doesNotContain("service;dur=");
+	}
+}
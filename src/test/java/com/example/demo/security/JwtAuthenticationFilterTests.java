@@ -0,0 +1,84 @@
+package com.example.demo.security;
+
+import com.example.demo.model.Role;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.CustomUserDetailsService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class JwtAuthenticationFilterTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private CustomUserDetailsService userDetailsService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void reusesCachedPrincipalUntilEvicted() throws Exception {
+		String token = tokenFor("principal-cache-user");
+
+		mockMvc.perform(get("/api/students/1").header("Authorization", "Bearer " + token))
+				.andExpect(status().isNotFound());
+
+		// Xóa thẳng trong DB: principal vẫn lấy từ cache, không truy vấn lại users/roles
+		userRepository.delete(userRepository.findByUsername("principal-cache-user").orElseThrow());
+		mockMvc.perform(get("/api/students/1").header("Authorization", "Bearer " + token))
+				.andExpect(status().isNotFound());
+
+		userDetailsService.evictPrincipal("principal-cache-user");
+		mockMvc.perform(get("/api/students/1").header("Authorization", "Bearer " + token))
+				.andExpect(status().isForbidden());
+	}
+
+	private String tokenFor(String username) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Role userRole = entityManager.createQuery("SELECT r FROM Role r WHERE r.name = 'ROLE_USER'", Role.class)
+					.getResultStream().findFirst().orElseGet(() -> {
+						Role created = new Role();
+						created.setName("ROLE_USER");
+						entityManager.persist(created);
+						return created;
+					});
+			User user = new User();
+			user.setUsername(username);
+			user.setPassword("{noop}secret");
+			user.setRoles(Set.of(userRole));
+			entityManager.persist(user);
+		});
+		UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+		return jwtUtil.generateJwtToken(
+				new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.example.demo.security;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "rate-limit.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PasswordLoginTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void rehashesLegacyHashOnSuccessfulLogin() throws Exception {
+		// Hash cũ không có tiền tố {id} và cost thấp hơn cấu hình (10)
+		createUser("rehash-user", new BCryptPasswordEncoder(4).encode("secret"));
+
+		login("rehash-user", "secret").andExpect(status().isOk());
+
+		String stored = userRepository.findByUsername("rehash-user").orElseThrow().getPassword();
+		assertThat(stored).startsWith("{bcrypt}$2a$10$");
+		login("rehash-user", "secret").andExpect(status().isOk());
+		assertThat(userRepository.findByUsername("rehash-user").orElseThrow().getPassword()).isEqualTo(stored);
+	}
+
+	@Test
+	void locksUsernameAfterRepeatedFailures() throws Exception {
+		createUser("throttled-user", new BCryptPasswordEncoder(4).encode("secret"));
+
+		for (int i = 0; i < 5; i++) {
+			login("throttled-user", "wrong").andExpect(status().isUnauthorized());
+		}
+		// Mật khẩu đúng cũng bị từ chối cho tới khi hết khóa, không chạm tới BCrypt
+		login("throttled-user", "secret")
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists("Retry-After"));
+		login("other-user", "wrong").andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void shedsWhenHashingQueueIsFull() throws Exception {
+		PasswordHashingExecutor executor = new PasswordHashingExecutor();
+		ReflectionTestUtils.setField(executor, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(executor, "threads", 1);
+		ReflectionTestUtils.setField(executor, "queueCapacity", 1);
+		executor.init();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		try {
+			// Một task đang chạy, một task trong hàng đợi
+			callers.submit(() -> executor.execute(PasswordHashingExecutor.MATCHES, () -> {
+				started.countDown();
+				return release.await(10, TimeUnit.SECONDS);
+			}));
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			callers.submit(() -> executor.execute(PasswordHashingExecutor.MATCHES, () -> true));
+			while (executor.getQueueDepth() == 0) {
+				Thread.onSpinWait();
+			}
+
+			assertThatThrownBy(() -> executor.execute(PasswordHashingExecutor.MATCHES, () -> true))
+					.isInstanceOf(PasswordHashingRejectedException.class);
+		} finally {
+			release.countDown();
+			callers.shutdown();
+			executor.shutdown();
+		}
+	}
+
+	private void createUser(String username, String password) {
+		User user = new User();
+		user.setUsername(username);
+		user.setPassword(password);
+		userRepository.save(user);
+	}
+
+	private ResultActions login(String username, String password) throws Exception {
+		return mockMvc.perform(post("/api/auth/login")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\": \"" + username + "\", \"password\": \"" + password + "\"}"));
+	}
+}
@@ -0,0 +1,169 @@
+package com.example.demo.security;
+
+import com.example.demo.dto.IssuedRefreshToken;
+import com.example.demo.model.RefreshToken;
+import com.example.demo.model.User;
+import com.example.demo.repository.RefreshTokenRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.RefreshTokenService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "rate-limit.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RefreshTokenTests {
+
+	private static final int RACERS = 16;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RefreshTokenService refreshTokenService;
+
+	@Autowired
+	private RefreshTokenRepository refreshTokenRepository;
+
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
+	@Test
+	void refreshRotatesTokensAndLogoutRevokesAccessToken() throws Exception {
+		User user = new User();
+		user.setUsername("refresh-user");
+		user.setPassword(new BCryptPasswordEncoder(4).encode("secret"));
+		userRepository.save(user);
+
+		JsonNode login = json(mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\": \"refresh-user\", \"password\": \"secret\"}")).andExpect(status().isOk()));
+		assertThat(login.get("expiresIn").asLong()).isEqualTo(900);
+		whoAmI(login.get("token").asText()).andExpect(content().string("Hello refresh-user! Your roles: []"));
+
+		JsonNode refreshed = json(refresh(login.get("refreshToken").asText()).andExpect(status().isOk()));
+		assertThat(refreshed.get("refreshToken").asText()).isNotEqualTo(login.get("refreshToken").asText());
+		// Token cũ chỉ dùng được một lần
+		refresh(login.get("refreshToken").asText()).andExpect(status().isUnauthorized());
+
+		String accessToken = refreshed.get("token").asText();
+		whoAmI(accessToken).andExpect(content().string("Hello refresh-user! Your roles: []"));
+		mockMvc.perform(post("/api/auth/logout").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"refreshToken\": \"" + refreshed.get("refreshToken").asText() + "\"}"))
+				.andExpect(status().isNoContent());
+
+		// Access token còn hạn nhưng phiên đã bị thu hồi
+		whoAmI(accessToken).andExpect(content().string("Hello anonymousUser! Your roles: [ROLE_ANONYMOUS]"));
+		refresh(refreshed.get("refreshToken").asText()).andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void concurrentRotationHasSingleWinnerAndLateReuseRevokesSession() throws Exception {
+		IssuedRefreshToken original = refreshTokenService.issue("rotation-user");
+
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<IssuedRefreshToken>> attempts = new ArrayList<>();
+		ExecutorService racers = Executors.newFixedThreadPool(RACERS);
+		try {
+			for (int i = 0; i < RACERS; i++) {
+				attempts.add(racers.submit(() -> {
+					start.await();
+					return refreshTokenService.rotate(original.token());
+				}));
+			}
+			start.countDown();
+		} finally {
+			racers.shutdown();
+			assertThat(racers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+		}
+
+		List<IssuedRefreshToken> winners = new ArrayList<>();
+		for (Future<IssuedRefreshToken> attempt : attempts) {
+			try {
+				winners.add(attempt.get());
+			} catch (Exception e) {
+				assertThat(e).hasCauseInstanceOf(InvalidRefreshTokenException.class);
+			}
+		}
+		assertThat(winners).hasSize(1);
+		assertThat(winners.get(0).familyId()).isEqualTo(original.familyId());
+		// Các request thua trong reuse-grace không thu hồi phiên
+		assertThat(tokenRevocationService.isRevoked(original.familyId())).isFalse();
+		IssuedRefreshToken next = refreshTokenService.rotate(winners.get(0).token());
+
+		// Dùng lại token gốc sau reuse-grace: coi như bị lộ, cả phiên bị thu hồi
+		RefreshToken rotated = refreshTokenRepository.findAll().stream()
+				.filter(token -> token.getFamilyId().equals(original.familyId()) && token.getRotatedAt() != null)
+				.min((a, b) -> a.getCreatedAt().compareTo(b.getCreatedAt()))
+				.orElseThrow();
+		rotated.setRotatedAt(Instant.now().minusSeconds(3600));
+		refreshTokenRepository.save(rotated);
+
+		assertThatThrownBy(() -> refreshTokenService.rotate(original.token()))
+				.isInstanceOf(InvalidRefreshTokenException.class);
+		assertThatThrownBy(() -> refreshTokenService.rotate(next.token()))
+				.isInstanceOf(InvalidRefreshTokenException.class);
+		assertThat(tokenRevocationService.isRevoked(original.familyId())).isTrue();
+	}
+
+	@Test
+	void expiredRefreshTokensArePurgedWithRevokedTokens() {
+		IssuedRefreshToken expired = refreshTokenService.issue("purge-user");
+		IssuedRefreshToken active = refreshTokenService.issue("purge-user");
+		RefreshToken row = refreshTokenRepository.findAll().stream()
+				.filter(token -> token.getFamilyId().equals(expired.familyId()))
+				.findFirst()
+				.orElseThrow();
+		row.setExpiresAt(Instant.now().minusSeconds(60));
+		refreshTokenRepository.save(row);
+
+		tokenRevocationService.rebuild();
+
+		assertThat(refreshTokenRepository.findAll()).extracting(RefreshToken::getFamilyId)
+				.doesNotContain(expired.familyId())
+				.contains(active.familyId());
+	}
+
+	private ResultActions refresh(String refreshToken) throws Exception {
+		return mockMvc.perform(post("/api/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"refreshToken\": \"" + refreshToken + "\"}"));
+	}
+
+	private ResultActions whoAmI(String accessToken) throws Exception {
+		return mockMvc.perform(get("/api/auth/test").header("Authorization", "Bearer " + accessToken));
+	}
+
+	private JsonNode json(ResultActions result) throws Exception {
+		return objectMapper.readTree(result.andReturn().getResponse().getContentAsString());
+	}
+}
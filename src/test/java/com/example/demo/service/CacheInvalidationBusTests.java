@@ -0,0 +1,231 @@
+package com.example.demo.service;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.dto.BulkStudentResponse;
+import com.example.demo.dto.BulkStudentResult;
+import com.example.demo.model.Student;
+import com.example.demo.security.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hai context ứng dụng (hai "pod") dùng chung một PostgreSQL: ghi trên pod này phải xóa cache của pod kia.
+ * Chỉ chạy khi có PostgreSQL riêng cho test, schema được Flyway tạo:
+ * mvn test -Dtest=CacheInvalidationBusTests -Dcache.invalidation.test-url=jdbc:postgresql://localhost:5432/student_cache
+ */
+@EnabledIfSystemProperty(named = "cache.invalidation.test-url", matches = ".+")
+class CacheInvalidationBusTests {
+
+	private static ConfigurableApplicationContext first;
+	private static ConfigurableApplicationContext second;
+
+	@BeforeAll
+	static void start() {
+		first = pod();
+		second = pod();
+	}
+
+	@AfterAll
+	static void stop() {
+		if (first != null) {
+			first.close();
+		}
+		if (second != null) {
+			second.close();
+		}
+	}
+
+	private static ConfigurableApplicationContext pod() {
+		return new SpringApplicationBuilder(DemoApplication.class)
+				.profiles("test")
+				.run("--spring.datasource.url=" + System.getProperty("cache.invalidation.test-url"),
+						"--spring.datasource.username=" + System.getProperty("cache.invalidation.test-username", "postgres"),
+						"--spring.datasource.password=" + System.getProperty("cache.invalidation.test-password", "123456"),
+						"--spring.datasource.driver-class-name=org.postgresql.Driver",
+						"--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+						"--spring.jpa.hibernate.ddl-auto=validate",
+						"--spring.flyway.enabled=true",
+						"--cache.invalidation.enabled=true",
+						"--server.port=0",
+						"--spring.devtools.restart.enabled=false");
+	}
+
+	@Test
+	void updateOnOnePodEvictsStudentCachedOnTheOther() throws Exception {
+		StudentService writer = first.getBean(StudentService.class);
+		StudentService reader = second.getBean(StudentService.class);
+		Student student = new Student();
+		student.setFullName("Trần Văn Cache");
+		student.setSchoolCategory("UET");
+		Long id = writer.saveStudent(student).getId();
+		try {
+			// Được cache 10 phút trên pod thứ hai
+			assertThat(reader.getStudentById(id)).hasValueSatisfying(view -> assertThat(view.fullName()).isEqualTo("Trần Văn Cache"));
+
+			Student changes = new Student();
+			changes.setFullName("Trần Văn Cache Mới");
+			writer.updateStudent(id, changes, null);
+
+			await(() -> reader.getStudentById(id).map(view -> view.fullName().equals("Trần Văn Cache Mới")).orElse(false));
+			await(() -> second.getBean(StudentAutocompleteIndex.class).suggest("cache moi", 5).stream()
+					.anyMatch(suggestion -> suggestion.getId().equals(id)));
+		} finally {
+			writer.deleteStudent(id);
+		}
+	}
+
+	@Test
+	void roleChangeOnOnePodEvictsPrincipalOnTheOther() throws Exception {
+		CustomUserDetailsService reader = second.getBean(CustomUserDetailsService.class);
+		JdbcTemplate jdbc = first.getBean(JdbcTemplate.class);
+		assertThat(reader.loadPrincipal("user1").isEnabled()).isTrue();
+		// Đổi trực tiếp trong DB: pod thứ hai vẫn trả principal đã cache
+		jdbc.update("UPDATE users SET enabled = false WHERE username = 'user1'");
+		try {
+			assertThat(reader.loadPrincipal("user1").isEnabled()).isTrue();
+
+			first.getBean(CustomUserDetailsService.class).evictPrincipal("user1");
+
+			await(() -> !reader.loadPrincipal("user1").isEnabled());
+		} finally {
+			jdbc.update("UPDATE users SET enabled = true WHERE username = 'user1'");
+			first.getBean(CustomUserDetailsService.class).evictPrincipal("user1");
+		}
+	}
+
+	@Test
+	void writeBurstIsCoalescedIntoFewNotifications() throws Exception {
+		StudentService writer = first.getBean(StudentService.class);
+		MeterRegistry firstMeters = first.getBean(MeterRegistry.class);
+		MeterRegistry secondMeters = second.getBean(MeterRegistry.class);
+		double changesBefore = firstMeters.counter("cache_invalidation_changes_total").count();
+		double sentBefore = sent(firstMeters);
+		long lagBefore = secondMeters.timer("cache_invalidation_lag").count();
+
+		Long[] ids = new Long[200];
+		for (int i = 0; i < ids.length; i++) {
+			Student student = new Student();
+			student.setFullName("Học viên Burst " + i);
+			ids[i] = writer.saveStudent(student).getId();
+		}
+		try {
+			await(() -> second.getBean(StudentAutocompleteIndex.class).suggest("burst 199", 1).size() == 1);
+
+			double messages = sent(firstMeters) - sentBefore;
+			assertThat(firstMeters.counter("cache_invalidation_changes_total").count() - changesBefore).isEqualTo(200);
+			assertThat(messages).isPositive().isLessThan(200);
+			assertThat(secondMeters.timer("cache_invalidation_lag").count()).isGreaterThan(lagBefore);
+			System.out.printf("200 writes -> %.0f notifications, mean lag %.1f ms%n", messages,
+					secondMeters.timer("cache_invalidation_lag").mean(TimeUnit.MILLISECONDS));
+		} finally {
+			for (Long id : ids) {
+				writer.deleteStudent(id);
+			}
+		}
+	}
+
+	@Test
+	void remoteBulkChunkReachesTheChangeFeedAsReset() throws Exception {
+		UserDetails user = second.getBean(CustomUserDetailsService.class).loadUserByUsername("user1");
+		String token = second.getBean(JwtUtil.class).generateJwtToken(
+				new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+		int port = second.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+		HttpResponse<InputStream> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+						URI.create("http://localhost:" + port + "/api/students/changes"))
+				.header("Authorization", "Bearer " + token).build(), HttpResponse.BodyHandlers.ofInputStream());
+		StringBuffer stream = new StringBuffer();
+		Thread reader = Thread.ofVirtual().start(() -> {
+			try (BufferedReader lines = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = lines.readLine()) != null) {
+					stream.append(line).append('\n');
+				}
+			} catch (IOException e) {
+				// Đóng kết nối ở cuối test
+			}
+		});
+
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 600; i++) {
+			Student student = new Student();
+			student.setFullName("Học viên Remote Bulk " + i);
+			students.add(student);
+		}
+		BulkStudentResponse result = first.getBean(StudentService.class).bulkUpsert(students.iterator());
+		try {
+			await(() -> second.getBean(StudentAutocompleteIndex.class).suggest("remote bulk 599", 1).size() == 1);
+			await(() -> stream.indexOf("event:reset") >= 0);
+
+			// 600 học viên tới pod thứ hai trong vài thông báo, mỗi thông báo một reset thay vì 600 sự kiện
+			assertThat(stream.toString()).doesNotContain("event:created");
+			assertThat(second.getBean(MeterRegistry.class)
+					.counter("student_changes_evicted_total", "reason", "slow_consumer").count()).isZero();
+		} finally {
+			response.body().close();
+			reader.join(1000);
+			for (BulkStudentResult row : result.getResults()) {
+				first.getBean(StudentService.class).deleteStudent(row.getId());
+			}
+		}
+	}
+
+	@Test
+	void listenerReconnectsAfterConnectionLoss() throws Exception {
+		MeterRegistry meters = second.getBean(MeterRegistry.class);
+		double reconnects = meters.counter("cache_invalidation_reconnects_total").count();
+		first.getBean(JdbcTemplate.class).queryForList("SELECT pg_terminate_backend(pid) FROM pg_stat_activity "
+				+ "WHERE application_name = 'cache-invalidation-listener'");
+
+		await(() -> meters.counter("cache_invalidation_reconnects_total").count() > reconnects
+				&& meters.get("cache_invalidation_listener_connected").gauge().value() == 1);
+
+		// Thông báo sau khi kết nối lại vẫn tới
+		CustomUserDetailsService reader = second.getBean(CustomUserDetailsService.class);
+		reader.loadPrincipal("user2");
+		JdbcTemplate jdbc = first.getBean(JdbcTemplate.class);
+		jdbc.update("UPDATE users SET enabled = false WHERE username = 'user2'");
+		try {
+			first.getBean(CustomUserDetailsService.class).evictPrincipal("user2");
+			await(() -> !reader.loadPrincipal("user2").isEnabled());
+		} finally {
+			jdbc.update("UPDATE users SET enabled = true WHERE username = 'user2'");
+			first.getBean(CustomUserDetailsService.class).evictPrincipal("user2");
+		}
+	}
+
+	private static double sent(MeterRegistry registry) {
+		return registry.counter("cache_invalidation_messages_total", "direction", "sent").count();
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).as("condition not met within 5s").isLessThan(deadline);
+			Thread.sleep(20);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.StudentSuggestion;
+import com.example.demo.model.Student;
+import com.example.demo.repository.StudentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StudentAutocompleteIndexTests {
+
+	private static final int LARGE_INDEX = 300_000;
+	private static final long MAX_MEDIAN_NANOS = 20_000_000;
+
+	@Autowired
+	private StudentAutocompleteIndex index;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@BeforeEach
+	void setUp() {
+		studentRepository.deleteAll();
+		index.rebuild();
+		index.index(student(900_001L, "Nguyễn Đăng Quân", "Đại học Công nghệ (UET)"));
+		index.index(student(900_002L, "Trịnh Vinh Tuấn Đạt", "Học viện Công nghệ Bưu chính Viễn thông"));
+		index.index(student(900_003L, "Nguyễn Đăng Bảo Lâm", "Đại học Bách Khoa Hà Nội (HUST)"));
+		index.index(student(900_004L, "Lê Minh Hoàng", "Đại học Khoa học tự nhiên - ĐHQG TPHCM (HCMUS)"));
+	}
+
+	@Test
+	void foldsDiacriticsAndMatchesPrefix() {
+		assertThat(index.suggest("Nguy", 10)).extracting(StudentSuggestion::getId)
+				.containsExactlyInAnyOrder(900_001L, 900_003L);
+		assertThat(index.suggest("dat", 10)).extracting(StudentSuggestion::getFullName)
+				.containsExactly("Trịnh Vinh Tuấn Đạt");
+	}
+
+	@Test
+	void requiresEarlierTermsAndRanksShorterNamesFirst() {
+		assertThat(index.suggest("nguyen dang", 10)).extracting(StudentSuggestion::getId)
+				.containsExactly(900_001L, 900_003L);
+		assertThat(index.suggest("nguyen dang b", 1)).extracting(StudentSuggestion::getId)
+				.containsExactly(900_003L);
+		assertThat(index.suggest("tran dang", 10)).isEmpty();
+	}
+
+	@Test
+	void matchesSchoolAndPrefersNameMatches() {
+		assertThat(index.suggest("hcmus", 10)).extracting(StudentSuggestion::getId).containsExactly(900_004L);
+		assertThat(index.suggest("cong ngh", 10)).extracting(StudentSuggestion::getId)
+				.containsExactlyInAnyOrder(900_001L, 900_002L);
+	}
+
+	@Test
+	void appliesUpdatesAndDeletes() {
+		index.index(student(900_001L, "Phạm Ngọc Hải Dương", "Đại học Công nghệ (UET)"));
+		index.remove(900_003L);
+
+		assertThat(index.suggest("nguyen", 10)).isEmpty();
+		assertThat(index.suggest("duong", 10)).extracting(StudentSuggestion::getId).containsExactly(900_001L);
+	}
+
+	@Test
+	void appliesChangesOnlyAfterCommit() {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.executeWithoutResult(status -> {
+			index.index(student(900_005L, "Phan Thanh Bình", "Đại học Thủy Lợi"));
+			index.remove(900_001L);
+			assertThat(index.suggest("binh", 10)).isEmpty();
+			status.setRollbackOnly();
+		});
+		assertThat(index.suggest("binh", 10)).isEmpty();
+		assertThat(index.suggest("quan", 10)).extracting(StudentSuggestion::getId).containsExactly(900_001L);
+
+		transaction.executeWithoutResult(status -> {
+			index.index(student(900_005L, "Phan Thanh Bình", "Đại học Thủy Lợi"));
+			index.remove(900_001L);
+		});
+		assertThat(index.suggest("binh", 10)).extracting(StudentSuggestion::getId).containsExactly(900_005L);
+		assertThat(index.suggest("quan", 10)).isEmpty();
+	}
+
+	@Test
+	void findsBestMatchInsertedAfterCandidateLimitOthers() {
+		// 200 học viên chỉ khớp "an" theo tiền tố (Anh), thêm trước bản ghi khớp nguyên token
+		for (long id = 1; id <= 200; id++) {
+			index.index(student(id, "Bùi Đức Anh", "Đại học Thủy Lợi"));
+		}
+		index.index(student(201L, "Bùi Đức An", "Đại học Thủy Lợi"));
+		// Khớp qua tên trường: xếp sau mọi bản ghi khớp trong tên
+		index.index(student(202L, "Trần Văn Bình", "Đại học An Giang"));
+
+		assertThat(index.suggest("bui duc an", 1)).extracting(StudentSuggestion::getId).containsExactly(201L);
+		assertThat(index.suggest("an", 3)).extracting(StudentSuggestion::getId).containsExactly(201L, 1L, 2L);
+		assertThat(index.suggest("an giang", 3)).extracting(StudentSuggestion::getId).containsExactly(202L);
+	}
+
+	@Test
+	void keepsAnsweringAfterCompaction() {
+		for (long id = 1; id <= 3_000; id++) {
+			index.index(student(id, "Bùi Đức Hùng " + id, "Đại học Thủy Lợi"));
+		}
+		for (long id = 1; id <= 2_999; id++) {
+			index.remove(id);
+		}
+
+		assertThat(index.size()).isEqualTo(5);
+		assertThat(index.suggest("bui duc", 10)).extracting(StudentSuggestion::getId).containsExactly(3_000L);
+		assertThat(index.suggest("thuy loi", 10)).extracting(StudentSuggestion::getId).containsExactly(3_000L);
+	}
+
+	@Test
+	void shortPrefixesStayFastOnLargeIndex() {
+		String[] surnames = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ", "Võ", "Đặng", "Bùi", "Đỗ",
+				"Hồ", "Ngô", "Dương", "Lý"};
+		String[] middles = {"Văn", "Thị", "Đức", "Ngọc", "Minh", "Thanh", "Quang", "Hữu", "Bảo", "Gia"};
+		String[] givens = {"An", "Anh", "Bình", "Chi", "Dũng", "Duy", "Giang", "Hà", "Hải", "Hùng", "Hương", "Khánh",
+				"Lan", "Linh", "Long", "Mai", "Nam", "Nga", "Ngân", "Nhung", "Phong", "Phúc", "Quân", "Sơn", "Tâm",
+				"Thảo", "Trang", "Tuấn", "Việt", "Yến"};
+		String[] schools = {"Đại học Công nghệ (UET)", "Đại học Bách Khoa Hà Nội (HUST)", "Học viện Công nghệ Bưu chính Viễn thông",
+				"Đại học Khoa học tự nhiên - ĐHQG TPHCM (HCMUS)", "Đại học Thủy Lợi", "Đại học Ngoại thương"};
+		Random random = new Random(42);
+		for (long id = 1; id <= LARGE_INDEX; id++) {
+			index.index(student(id, surnames[random.nextInt(surnames.length)] + " " + middles[random.nextInt(middles.length)]
+					+ " " + givens[random.nextInt(givens.length)], schools[random.nextInt(schools.length)]));
+		}
+
+		for (String query : new String[]{"n", "ng", "dai", "nguyen v", "tran thi h"}) {
+			long[] nanos = new long[50];
+			for (int i = 0; i < nanos.length; i++) {
+				long start = System.nanoTime();
+				assertThat(index.suggest(query, 10)).hasSize(10);
+				nanos[i] = System.nanoTime() - start;
+			}
+			Arrays.sort(nanos);
+			// Số ứng viên được chấm điểm có giới hạn: độ trễ không tăng theo số học viên khớp
+			assertThat(nanos[nanos.length / 2]).as("median latency of '%s' in ns", query).isLessThan(MAX_MEDIAN_NANOS);
+		}
+	}
+
+	private Student student(Long id, String fullName, String school) {
+		Student student = new Student();
+		student.setId(id);
+		student.setFullName(fullName);
+		student.setSchoolCategory(school);
+		return student;
+	}
+
+}
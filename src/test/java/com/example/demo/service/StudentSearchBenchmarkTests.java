@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Đo độ trễ tìm kiếm trigram theo kích thước bảng (10k, 100k, 1M học viên).
+ * Chỉ chạy khi có PostgreSQL riêng cho benchmark, bảng students sẽ bị tạo lại và xóa:
+ * mvn test -Dtest=StudentSearchBenchmarkTests -Dsearch.benchmark.url=jdbc:postgresql://localhost:5432/student_bench
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "search.benchmark.url", matches = ".+")
+class StudentSearchBenchmarkTests {
+
+	private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+	private static final int QUERIES = 200;
+
+	@DynamicPropertySource
+	static void benchmarkDatabase(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", () -> System.getProperty("search.benchmark.url"));
+		registry.add("spring.datasource.username", () -> System.getProperty("search.benchmark.username", "postgres"));
+		registry.add("spring.datasource.password", () -> System.getProperty("search.benchmark.password", "123456"));
+		registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+		registry.add("spring.flyway.enabled", () -> "false");
+		registry.add("spring.jpa.show-sql", () -> "false");
+	}
+
+	@Autowired
+	private StudentService studentService;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Test
+	void searchLatencyGrowsSublinearly() {
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		new ResourceDatabasePopulator(new ClassPathResource("db/migration/V2__student_search.sql")).execute(dataSource);
+
+		double[] medians = new double[SIZES.length];
+		int loaded = 0;
+		for (int i = 0; i < SIZES.length; i++) {
+			jdbc.update("INSERT INTO students (id, full_name, birth_date, school_category) "
+					+ "SELECT nextval('students_id_seq'), "
+					+ "(ARRAY['Nguyễn','Trần','Lê','Phạm','Hoàng','Bùi'])[1 + g % 6] || ' Văn HV' || g, "
+					+ "DATE '2000-01-01' + (g % 2000), "
+					+ "(ARRAY['Đại học Công nghệ (UET)','Đại học Bách Khoa Hà Nội (HUST)','Đại học Thủy Lợi'])[1 + g % 3] "
+					+ "FROM generate_series(?, ?) g", loaded + 1, SIZES[i]);
+			loaded = SIZES[i];
+			jdbc.execute("ANALYZE students");
+			medians[i] = medianSearchMicros(loaded);
+			System.out.printf("students=%d median search=%.1fus%n", loaded, medians[i]);
+		}
+
+		// Bảng lớn gấp 100 lần, độ trễ phải tăng ít hơn nhiều so với tuyến tính
+		assertThat(medians[SIZES.length - 1]).isLessThan(medians[0] * 10);
+	}
+
+	private double medianSearchMicros(int size) {
+		Random random = new Random(42);
+		long version = studentService.getCollectionVersion();
+		for (int i = 0; i < 50; i++) {
+			studentService.searchByName("hv" + (1 + random.nextInt(size)), 20, version);
+		}
+		long[] samples = new long[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			String term = "hv" + (1 + random.nextInt(size));
+			long start = System.nanoTime();
+			studentService.searchByName(term, 20, version);
+			samples[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(samples);
+		return samples[QUERIES / 2] / 1_000.0;
+	}
+
+}
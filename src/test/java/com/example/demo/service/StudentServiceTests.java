@@ -0,0 +1,265 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BulkStudentResponse;
+import com.example.demo.dto.BulkStudentResult;
+import com.example.demo.dto.StudentPageResponse;
+import com.example.demo.dto.StudentView;
+import com.example.demo.model.Student;
+import com.example.demo.repository.StudentRepository;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StudentServiceTests {
+
+	@Autowired
+	private StudentService studentService;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${student.bulk.batch-size:500}")
+	private int bulkBatchSize;
+
+	@BeforeEach
+	void setUp() {
+		studentRepository.deleteAll();
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		String[] names = {"Nguyễn Đăng Quân", "Bùi Đức Hùng", "Lê Tấn Phát", "Nguyễn Đăng Quân", "Đinh Trường Lãm"};
+		for (String name : names) {
+			Student student = new Student();
+			student.setFullName(name);
+			student.setSchoolCategory("Đại học Công nghệ (UET)");
+			studentRepository.save(student);
+		}
+	}
+
+	@Test
+	void pagesByIdUntilCursorIsExhausted() {
+		List<Long> seen = new ArrayList<>();
+		long version = studentService.getCollectionVersion();
+		String cursor = null;
+		do {
+			StudentPageResponse page = studentService.getStudentsPage(cursor, 2, null, version);
+			assertThat(page.getItems()).hasSizeLessThanOrEqualTo(2);
+			page.getItems().forEach(s -> seen.add(s.id()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertThat(seen).hasSize(5).isSorted().doesNotHaveDuplicates();
+	}
+
+	@Test
+	void pagesByFullNameWithDuplicateNames() {
+		List<String> names = new ArrayList<>();
+		List<Long> ids = new ArrayList<>();
+		long version = studentService.getCollectionVersion();
+		String cursor = null;
+		do {
+			StudentPageResponse page = studentService.getStudentsPage(cursor, 2, cursor == null ? "fullName" : null, version);
+			page.getItems().forEach(s -> {
+				names.add(s.fullName());
+				ids.add(s.id());
+			});
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertThat(ids).hasSize(5).doesNotHaveDuplicates();
+		assertThat(names).isSorted();
+	}
+
+	@Test
+	void rejectsMalformedCursorAndCapsLimit() {
+		assertThatThrownBy(() -> studentService.getStudentsPage("not-a-cursor", 10, null, 0))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(studentService.getStudentsPage(null, 100_000, null, 0).getLimit()).isEqualTo(500);
+	}
+
+	@Test
+	void exportsOneNdjsonLinePerStudent() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		studentService.exportStudents(StudentService.EXPORT_NDJSON, out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertThat(lines).hasSize(5);
+		assertThat(lines[0]).startsWith("{").contains("\"fullName\":\"Nguyễn Đăng Quân\"");
+	}
+
+	@Test
+	void exportFlushesPerBatchNotPerRow() throws Exception {
+		AtomicInteger flushes = new AtomicInteger();
+		OutputStream out = new FilterOutputStream(new ByteArrayOutputStream()) {
+			@Override
+			public void flush() {
+				flushes.incrementAndGet();
+			}
+		};
+		studentService.exportStudents(StudentService.EXPORT_NDJSON, out);
+
+		// 5 dòng < student.export.flush-rows: chỉ một lần flush cuối
+		assertThat(flushes).hasValue(1);
+	}
+
+	@Test
+	void exportsCsvWithQuotedFields() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		studentService.exportStudents(StudentService.EXPORT_CSV, out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertThat(lines).hasSize(6);
+		assertThat(lines[0]).isEqualTo("id,full_name,birth_date,school_category");
+		assertThat(lines[1]).endsWith(",Nguyễn Đăng Quân,,Đại học Công nghệ (UET)");
+	}
+
+	@Test
+	void bulkUpsertCreatesUpdatesAndReportsInvalidRows() {
+		StudentView existing = studentRepository.findAllByOrderByIdAsc(Limit.of(1)).get(0);
+		List<Student> input = new ArrayList<>();
+		Student update = new Student();
+		update.setId(existing.id());
+		update.setFullName("Trịnh Vinh Tuấn Đạt");
+		input.add(update);
+		input.add(new Student());
+		for (int i = 0; i < 1_200; i++) {
+			Student student = new Student();
+			student.setFullName("Học viên " + i);
+			input.add(student);
+		}
+
+		BulkStudentResponse response = studentService.bulkUpsert(input.iterator());
+
+		assertThat(response.getUpdated()).isEqualTo(1);
+		assertThat(response.getFailed()).isEqualTo(1);
+		assertThat(response.getCreated()).isEqualTo(1_200);
+		assertThat(response.getResults().get(1).getStatus()).isEqualTo(BulkStudentResult.FAILED);
+		assertThat(studentRepository.count()).isEqualTo(1_205);
+		assertThat(studentRepository.findById(existing.id())).get()
+				.extracting(Student::getFullName).isEqualTo("Trịnh Vinh Tuấn Đạt");
+	}
+
+	@Test
+	void bulkUpsertStopsAtMalformedRecordAndKeepsEarlierResults() throws Exception {
+		String body = "{\"fullName\":\"Học viên A\"}\n{\"id\":987654,\"fullName\":\"Học viên B\"}\n{\"fullName\":\n{\"fullName\":\"Học viên C\"}\n";
+		Student[] parsed = new Student[2];
+		BulkStudentResponse response;
+		try (MappingIterator<Student> students = objectMapper.readerFor(Student.class)
+				.readValues(body.getBytes(StandardCharsets.UTF_8))) {
+			response = studentService.bulkUpsert(new Iterator<>() {
+				private int next;
+
+				@Override
+				public boolean hasNext() {
+					return students.hasNext();
+				}
+
+				@Override
+				public Student next() {
+					Student student = students.next();
+					parsed[next++] = student;
+					return student;
+				}
+			});
+		}
+
+		assertThat(response.getCreated()).isEqualTo(2);
+		assertThat(response.getResults()).hasSize(2);
+		assertThat(response.getError()).startsWith("Bản ghi 2 không hợp lệ");
+		assertThat(studentRepository.count()).isEqualTo(7);
+		// Bản ghi đầu vào không bị sửa: id mới chỉ nằm trong kết quả
+		assertThat(parsed[1].getId()).isEqualTo(987654L);
+		assertThat(response.getResults().get(1).getId()).isNotEqualTo(987654L);
+	}
+
+	@Test
+	void bulkUpsertRefreshesListingsAfterEachCommittedChunk() {
+		long before = studentService.getCollectionVersion();
+		assertThat(studentService.getStudentsPage(null, 10, null, before).getItems()).hasSize(5);
+		assertThat(studentService.searchByName("Học viên", null, before)).isEmpty();
+
+		long[] during = new long[1];
+		List<StudentView> pageDuring = new ArrayList<>();
+		List<StudentView> searchDuring = new ArrayList<>();
+		studentService.bulkUpsert(new Iterator<>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next <= bulkBatchSize;
+			}
+
+			@Override
+			public Student next() {
+				if (next == bulkBatchSize) {
+					// Lô đầu đã commit, luồng upload vẫn đang chạy
+					during[0] = studentService.getCollectionVersion();
+					pageDuring.addAll(studentService.getStudentsPage(null, 10, null, during[0]).getItems());
+					searchDuring.addAll(studentService.searchByName("Học viên", null, during[0]));
+				}
+				Student student = new Student();
+				student.setFullName("Học viên " + next++);
+				return student;
+			}
+		});
+
+		assertThat(during[0]).isGreaterThan(before);
+		assertThat(pageDuring).hasSize(10);
+		assertThat(searchDuring).isNotEmpty();
+	}
+
+	@Test
+	void searchMatchesNameOrSchoolAndAppliesLimit() {
+		assertThat(studentService.search("quân", null, 0)).hasSize(2);
+		assertThat(studentService.search("UET", 3, 0)).hasSize(3);
+		assertThat(studentService.searchByName("Phát", null, 0)).extracting(StudentView::fullName)
+				.containsExactly("Lê Tấn Phát");
+	}
+
+	@Test
+	void cachesReadsAndInvalidatesOnWrite() {
+		StudentView student = studentRepository.findAllByOrderByIdAsc(Limit.of(1)).get(0);
+		assertThat(studentService.getStudentById(student.id())).isPresent();
+		assertThat(studentService.searchByName("Hải Dương", null, studentService.getCollectionVersion())).isEmpty();
+
+		// Ghi thẳng vào DB không đi qua service: cache vẫn trả dữ liệu cũ
+		studentRepository.deleteById(student.id());
+		assertThat(studentService.getStudentById(student.id())).isPresent();
+
+		Student created = new Student();
+		created.setFullName("Phạm Ngọc Hải Dương");
+		studentService.saveStudent(created);
+		assertThat(studentService.searchByName("Hải Dương", null, studentService.getCollectionVersion())).hasSize(1);
+		assertThat(studentService.getStudentById(created.getId())).get()
+				.extracting(StudentView::fullName).isEqualTo("Phạm Ngọc Hải Dương");
+
+		studentService.deleteStudent(created.getId());
+		assertThat(studentService.getStudentById(created.getId())).isEmpty();
+	}
+
+}